@@ -2,7 +2,11 @@ package org.ide.hack1.client.githubmodels;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.ide.hack1.dto.summary.SalesAggregatesDTO;
+import org.ide.hack1.util.CircuitBreaker;
+import org.ide.hack1.util.TokenBucket;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -13,14 +17,29 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
 @Component
 public class GithubModelsClient {
@@ -31,15 +50,46 @@ public class GithubModelsClient {
     private String modelId;
     private final HttpClient httpClient;
     private final ObjectMapper mapper = new ObjectMapper();
+    private final Duration timeout;
+    private final CircuitBreaker circuitBreaker;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final boolean hedgeEnabled;
+    private final int hedgeMinSamples;
+    private final TokenBucket rateLimiter;
+    private final LatencyWindow latencies = new LatencyWindow();
+    private final MeterRegistry meterRegistry;
 
     public GithubModelsClient(
+            MeterRegistry meterRegistry,
             @Value("${GITHUB_TOKEN:}") String token,
             @Value("${GITHUB_MODELS_URL:https://api.github.com/ai/experimental/models}") String modelsUrl,
-            @Value("${MODEL_ID:}") String modelId
+            @Value("${MODEL_ID:}") String modelId,
+            @Value("${llm.github.timeout:8s}") Duration timeout,
+            @Value("${llm.github.circuit.failure-threshold:5}") int failureThreshold,
+            @Value("${llm.github.circuit.open-duration:30s}") Duration openDuration,
+            @Value("${llm.github.retry.max-attempts:3}") int maxAttempts,
+            @Value("${llm.github.retry.initial-backoff:200ms}") Duration initialBackoff,
+            @Value("${llm.github.retry.max-backoff:2s}") Duration maxBackoff,
+            @Value("${llm.github.hedge.enabled:false}") boolean hedgeEnabled,
+            @Value("${llm.github.hedge.min-samples:20}") int hedgeMinSamples,
+            @Value("${llm.github.rate-limit.requests-per-second:0}") double requestsPerSecond,
+            @Value("${llm.github.rate-limit.burst:5}") int burst
     ) {
+        this.meterRegistry = meterRegistry;
         this.token = token;
         this.modelsUrl = modelsUrl;
         this.modelId = modelId;
+        this.timeout = timeout;
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, openDuration);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.hedgeEnabled = hedgeEnabled;
+        this.hedgeMinSamples = hedgeMinSamples;
+        // 0 = no client-side limit
+        this.rateLimiter = requestsPerSecond > 0 ? new TokenBucket(requestsPerSecond, burst) : null;
         this.httpClient = HttpClient.newBuilder()
                 .connectTimeout(Duration.ofSeconds(10))
                 .build();
@@ -84,80 +134,277 @@ public class GithubModelsClient {
     }
 
     /**
-     * Genera un summary llamando al GitHub Models API. Devuelve null si no está configurado o falla.
+     * Genera un summary llamando al GitHub Models API. Devuelve null si no está configurado, si el circuito
+     * está abierto o si la llamada falla o excede llm.github.timeout.
      */
     public String generateSummary(SalesAggregatesDTO agg, LocalDate from, LocalDate to) {
+        return generateSummaryAsync(agg, from, to).join();
+    }
+
+    /**
+     * Versión no bloqueante: el future siempre completa normalmente, con null en los mismos casos que
+     * {@link #generateSummary}, y nunca después de llm.github.timeout. Dentro de ese presupuesto reintenta
+     * 429/5xx/errores de red con backoff exponencial con jitter (respetando Retry-After) y, si está activo,
+     * lanza un segundo intento cuando el primero supera el p95 observado.
+     */
+    public CompletableFuture<String> generateSummaryAsync(SalesAggregatesDTO agg, LocalDate from, LocalDate to) {
         if (token == null || token.isBlank()) {
             log.warn("GITHUB_TOKEN not configured, skipping LLM call");
-            return null;
+            return CompletableFuture.completedFuture(null);
         }
         if (modelId == null || modelId.isBlank()) {
             log.warn("MODEL_ID not configured, skipping LLM call");
-            return null;
+            return CompletableFuture.completedFuture(null);
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            // open (or probing): fall back right away instead of waiting on an API that is failing
+            log.debug("GitHub Models circuit is {}, skipping LLM call", circuitBreaker.state());
+            return CompletableFuture.completedFuture(null);
         }
 
+        HttpRequest req;
         try {
-            // Construct messages per README and include date range
-            String system = "Eres un analista que escribe resúmenes breves y claros para emails corporativos en español. Sé conciso (<=120 palabras).";
-            String user = String.format("Periodo: %s a %s. Con estos datos: totalUnits=%d, totalRevenue=%.2f, topSku=%s, topBranch=%s. Devuelve un resumen ≤120 palabras para enviar por email.",
-                    from != null ? from.toString() : "N/A",
-                    to != null ? to.toString() : "N/A",
-                    agg.getTotalUnits(), agg.getTotalRevenue(), agg.getTopSku(), agg.getTopBranch());
-
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("model", modelId);
-
-            Map<String, String> sys = new HashMap<>(); sys.put("role","system"); sys.put("content", system);
-            Map<String, String> usr = new HashMap<>(); usr.put("role","user"); usr.put("content", user);
-            payload.put("messages", new Map[]{sys, usr});
-            payload.put("max_tokens", 200);
-
-            String body = mapper.writeValueAsString(payload);
-
-            URI uri = URI.create(modelsUrl);
-
-            HttpRequest req = HttpRequest.newBuilder()
-                    .uri(uri)
-                    .timeout(Duration.ofSeconds(20))
-                    .header("Content-Type", "application/json")
-                    .header("Authorization", "Bearer " + token)
-                    .POST(HttpRequest.BodyPublishers.ofString(body))
-                    .build();
-
-            HttpResponse<String> resp = httpClient.send(req, HttpResponse.BodyHandlers.ofString());
-            int sc = resp.statusCode();
-            if (sc >= 200 && sc < 300) {
-                String respBody = resp.body();
-                // Try to parse common response shapes
-                JsonNode root = mapper.readTree(respBody);
-                // Try path: choices[0].message.content
-                JsonNode content = null;
-                if (root.has("choices") && root.get("choices").isArray() && !root.get("choices").isEmpty()) {
-                    JsonNode choice0 = root.get("choices").get(0);
-                    if (choice0.has("message") && choice0.get("message").has("content")) {
-                        content = choice0.get("message").get("content");
-                    } else if (choice0.has("text")) {
-                        content = choice0.get("text");
+            req = buildRequest(agg, from, to);
+        } catch (Exception ex) {
+            circuitBreaker.release();
+            log.error("Error building GitHub Models request: {}", ex.getMessage(), ex);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        CompletableFuture<HttpResponse<String>> call = new CompletableFuture<>();
+        attempt(req, 1, deadline, call);
+        return call
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .handle((resp, ex) -> {
+                    if (ex != null) {
+                        Throwable cause = unwrap(ex);
+                        if (cause instanceof QuotaExhaustedException) {
+                            // our own limit, not an API failure
+                            circuitBreaker.release();
+                            log.warn("LLM request quota exhausted for the next {} ms, using local summary", timeout.toMillis());
+                            return null;
+                        }
+                        circuitBreaker.onFailure();
+                        if (cause instanceof TimeoutException || cause instanceof HttpTimeoutException) {
+                            log.warn("LLM request exceeded its {} ms budget", timeout.toMillis());
+                        } else {
+                            log.error("Error calling GitHub Models API: {}", cause.getMessage());
+                        }
+                        return null;
                     }
+                    int sc = resp.statusCode();
+                    if (sc < 200 || sc >= 300) {
+                        circuitBreaker.onFailure();
+                        log.error("LLM request failed with status {} and body: {}", sc, resp.body());
+                        return null;
+                    }
+                    circuitBreaker.onSuccess();
+                    return extractContent(resp.body());
+                });
+    }
+
+    CircuitBreaker.State circuitState() {
+        return circuitBreaker.state();
+    }
+
+    // takes a token (waiting for it if the budget allows), then sends
+    private void attempt(HttpRequest req, int attempt, long deadline, CompletableFuture<HttpResponse<String>> call) {
+        if (call.isDone()) return;
+        long wait = rateLimiter == null ? 0 : rateLimiter.reserve(deadline - System.nanoTime());
+        if (wait < 0) {
+            call.completeExceptionally(QuotaExhaustedException.INSTANCE);
+        } else if (wait > 0) {
+            CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS).execute(() -> send(req, attempt, deadline, call));
+        } else {
+            send(req, attempt, deadline, call);
+        }
+    }
+
+    private void send(HttpRequest req, int attempt, long deadline, CompletableFuture<HttpResponse<String>> call) {
+        long remaining = deadline - System.nanoTime();
+        // past the deadline orTimeout completes the call
+        if (call.isDone() || remaining <= 0) return;
+        HttpRequest timed = HttpRequest.newBuilder(req, (name, value) -> true).timeout(Duration.ofNanos(remaining)).build();
+        exchange(timed, attempt == 1 ? "first" : "retry", remaining).whenComplete((resp, ex) -> {
+            if (call.isDone()) return;
+            boolean retryable = ex != null ? !(unwrap(ex) instanceof CancellationException) : isRetryable(resp.statusCode());
+            long delay = retryable && attempt < maxAttempts ? backoffNanos(attempt, resp) : -1;
+            if (delay < 0 || System.nanoTime() + delay >= deadline) {
+                if (ex != null) call.completeExceptionally(ex);
+                else call.complete(resp);
+                return;
+            }
+            log.debug("Retrying LLM request (attempt {}) in {} ms", attempt + 1, TimeUnit.NANOSECONDS.toMillis(delay));
+            CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS).execute(() -> attempt(req, attempt + 1, deadline, call));
+        });
+    }
+
+    // one attempt, hedged with a second request once it runs past the p95 of successful attempts
+    private CompletableFuture<HttpResponse<String>> exchange(HttpRequest req, String kind, long remaining) {
+        List<CompletableFuture<HttpResponse<String>>> sent = new CopyOnWriteArrayList<>();
+        CompletableFuture<HttpResponse<String>> primary = timedSend(req, kind, sent);
+        long hedgeAfter = hedgeEnabled ? latencies.percentile95(hedgeMinSamples) : -1;
+        if (hedgeAfter < 0 || hedgeAfter >= remaining) {
+            return primary;
+        }
+
+        CompletableFuture<HttpResponse<String>> winner = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        BiConsumer<HttpResponse<String>, Throwable> settle = (resp, ex) -> {
+            // the first usable answer wins; a failure only counts once the other request is done too
+            if ((ex == null && !isRetryable(resp.statusCode())) || pending.decrementAndGet() == 0) {
+                if (ex != null) winner.completeExceptionally(ex);
+                else winner.complete(resp);
+            }
+        };
+        CompletableFuture.delayedExecutor(hedgeAfter, TimeUnit.NANOSECONDS).execute(() -> {
+            if (winner.isDone() || (rateLimiter != null && !rateLimiter.tryAcquire())) return;
+            pending.incrementAndGet();
+            timedSend(req, "hedge", sent).whenComplete(settle);
+        });
+        primary.whenComplete(settle);
+        // cancelling the HttpClient future aborts the losing exchange
+        winner.whenComplete((resp, ex) -> sent.forEach(f -> f.cancel(true)));
+        return winner;
+    }
+
+    // records the attempt before completing; the raw HttpClient future goes into sent so it can be cancelled
+    private CompletableFuture<HttpResponse<String>> timedSend(HttpRequest req, String kind,
+                                                              List<CompletableFuture<HttpResponse<String>>> sent) {
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<String>> response = httpClient.sendAsync(req, HttpResponse.BodyHandlers.ofString());
+        sent.add(response);
+        return response.whenComplete((resp, ex) -> {
+            long elapsed = System.nanoTime() - start;
+            String outcome = ex == null ? Integer.toString(resp.statusCode())
+                    : unwrap(ex) instanceof CancellationException ? "cancelled" : "error";
+            Timer.builder("llm.github.attempt").tag("kind", kind).tag("outcome", outcome)
+                    .register(meterRegistry).record(elapsed, TimeUnit.NANOSECONDS);
+            if (ex == null && resp.statusCode() >= 200 && resp.statusCode() < 300) {
+                latencies.add(elapsed);
+            }
+            log.debug("LLM {} attempt finished with {} in {} ms", kind, outcome, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        });
+    }
+
+    private static boolean isRetryable(int status) {
+        return status == 429 || status >= 500;
+    }
+
+    // full jitter over the exponential step, but never earlier than the server's Retry-After
+    private long backoffNanos(int attempt, HttpResponse<String> resp) {
+        long step = Math.min(maxBackoff.toNanos(), initialBackoff.toNanos() << Math.min(attempt - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(step + 1);
+        return resp == null ? delay : Math.max(delay, retryAfterNanos(resp));
+    }
+
+    private static long retryAfterNanos(HttpResponse<String> resp) {
+        String value = resp.headers().firstValue("Retry-After").orElse(null);
+        if (value == null || value.isBlank()) return 0;
+        try {
+            return TimeUnit.SECONDS.toNanos(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException ignored) {
+            // not delay-seconds, try an HTTP-date
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(Instant.now(), at).toNanos());
+        } catch (DateTimeParseException ex) {
+            return 0;
+        }
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
+
+    private HttpRequest buildRequest(SalesAggregatesDTO agg, LocalDate from, LocalDate to) throws IOException {
+        // Construct messages per README and include date range
+        String system = "Eres un analista que escribe resúmenes breves y claros para emails corporativos en español. Sé conciso (<=120 palabras).";
+        String user = String.format("Periodo: %s a %s. Con estos datos: totalUnits=%d, totalRevenue=%.2f, topSku=%s, topBranch=%s. Devuelve un resumen ≤120 palabras para enviar por email.",
+                from != null ? from.toString() : "N/A",
+                to != null ? to.toString() : "N/A",
+                agg.getTotalUnits(), agg.getTotalRevenue(), agg.getTopSku(), agg.getTopBranch());
+
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("model", modelId);
+
+        Map<String, String> sys = new HashMap<>(); sys.put("role","system"); sys.put("content", system);
+        Map<String, String> usr = new HashMap<>(); usr.put("role","user"); usr.put("content", user);
+        payload.put("messages", new Map[]{sys, usr});
+        payload.put("max_tokens", 200);
+
+        String body = mapper.writeValueAsString(payload);
+
+        URI uri = URI.create(modelsUrl);
+
+        return HttpRequest.newBuilder()
+                .uri(uri)
+                // the client aborts the exchange at the budget; orTimeout also covers connecting
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + token)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    /** Ventana de las últimas latencias de intentos exitosos, para decidir cuándo lanzar el hedge. */
+    private static final class LatencyWindow {
+        private final long[] samples = new long[128];
+        private int count;
+        private int next;
+
+        synchronized void add(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            if (count < samples.length) count++;
+        }
+
+        synchronized long percentile95(int minSamples) {
+            if (count < Math.max(1, minSamples)) return -1;
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.ceil(count * 0.95) - 1];
+        }
+    }
+
+    private static final class QuotaExhaustedException extends RuntimeException {
+        static final QuotaExhaustedException INSTANCE = new QuotaExhaustedException();
+
+        private QuotaExhaustedException() {
+            super("LLM request quota exhausted", null, false, false);
+        }
+    }
+
+    private String extractContent(String respBody) {
+        try {
+            // Try to parse common response shapes
+            JsonNode root = mapper.readTree(respBody);
+            // Try path: choices[0].message.content
+            JsonNode content = null;
+            if (root.has("choices") && root.get("choices").isArray() && !root.get("choices").isEmpty()) {
+                JsonNode choice0 = root.get("choices").get(0);
+                if (choice0.has("message") && choice0.get("message").has("content")) {
+                    content = choice0.get("message").get("content");
+                } else if (choice0.has("text")) {
+                    content = choice0.get("text");
                 }
-                // Fallback: data[0].content
-                if (content == null && root.has("data") && root.get("data").isArray() && !root.get("data").isEmpty()) {
-                    JsonNode d0 = root.get("data").get(0);
-                    if (d0.has("content")) content = d0.get("content");
-                }
-                if (content != null) {
-                    String text = content.isTextual() ? content.asText() : content.toString();
-                    return text.trim();
-                } else {
-                    log.warn("LLM response did not contain expected fields: {}", root.toString());
-                    return null;
-                }
+            }
+            // Fallback: data[0].content
+            if (content == null && root.has("data") && root.get("data").isArray() && !root.get("data").isEmpty()) {
+                JsonNode d0 = root.get("data").get(0);
+                if (d0.has("content")) content = d0.get("content");
+            }
+            if (content != null) {
+                String text = content.isTextual() ? content.asText() : content.toString();
+                return text.trim();
             } else {
-                log.error("LLM request failed with status {} and body: {}", sc, resp.body());
+                log.warn("LLM response did not contain expected fields: {}", root.toString());
                 return null;
             }
-        } catch (Exception ex) {
-            log.error("Error calling GitHub Models API: {}", ex.getMessage(), ex);
+        } catch (IOException ex) {
+            log.error("Unparseable GitHub Models response: {}", ex.getMessage());
             return null;
         }
     }
@@ -1,16 +1,27 @@
 package org.ide.hack1.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 @EnableAsync
 public class AsyncConfig {
 
+    // short DB/IO tasks: register saves, password rehash updates, report worker wake-ups and SSE deliveries.
+    // Stays a bounded platform pool: its queue is what keeps a burst of those from taking every DB connection.
+    // Reports no longer run here, so the virtual-thread option lives on reportExecutor.
     @Bean(name = "taskExecutor")
     public Executor taskExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
@@ -21,4 +32,76 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
+
+    // runs streamed responses (GET /sales/export); each running export holds one DB connection
+    @Bean(name = "exportExecutor")
+    public ThreadPoolTaskExecutor exportExecutor(@Value("${sales.export.max-concurrent:4}") int maxConcurrent) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrent);
+        executor.setMaxPoolSize(maxConcurrent);
+        executor.setQueueCapacity(16);
+        executor.setThreadNamePrefix("export-");
+        executor.initialize();
+        return executor;
+    }
+
+    // runs claimed report jobs (ReportJobWorker); the worker never claims more than reports.queue.concurrency.
+    // This is where the reports' blocking JDBC/LLM/SMTP waits happen, hence reports.queue.virtual-threads here
+    @Bean(name = "reportExecutor")
+    public TaskExecutor reportExecutor(@Value("${reports.queue.concurrency:4}") int concurrency,
+                                       @Value("${reports.queue.virtual-threads:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            // a job mostly waits on JDBC, the LLM and SMTP: one virtual thread each, bounded by the worker's slots
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("report-vt-");
+            executor.setVirtualThreads(true);
+            return executor;
+        }
+        int size = Math.max(1, concurrency);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(size);
+        executor.setMaxPoolSize(size);
+        executor.setQueueCapacity(size);
+        executor.setThreadNamePrefix("report-");
+        executor.initialize();
+        return executor;
+    }
+
+    // email outbox delivery; JavaMail blocks inside synchronized, which would pin a virtual thread's carrier
+    @Bean(name = "mailExecutor")
+    public ThreadPoolTaskExecutor mailExecutor(@Value("${reports.queue.mail-concurrency:2}") int mailConcurrency) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(mailConcurrency);
+        executor.setMaxPoolSize(mailConcurrency);
+        executor.setThreadNamePrefix("mail-");
+        executor.initialize();
+        return executor;
+    }
+
+    // off-peak precomputation of weekly summaries; its size is the cap on summaries computed at once
+    @Bean(name = "precomputeExecutor")
+    public ThreadPoolTaskExecutor precomputeExecutor(@Value("${reports.precompute.concurrency:2}") int concurrency) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setThreadNamePrefix("precompute-");
+        executor.initialize();
+        return executor;
+    }
+
+    // BCrypt hashing/verification for login and register; a full queue rejects instead of piling up requests
+    @Bean(name = "passwordHashingExecutor", destroyMethod = "shutdown")
+    public ThreadPoolExecutor passwordHashingExecutor(@Value("${auth.password.threads:0}") int threads,
+                                                      @Value("${auth.password.queue-capacity:64}") int queueCapacity) {
+        int size = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("bcrypt-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // bounded pool for parallel sales aggregation; each worker holds one DB connection while reading its slice
+    @Bean(name = "aggregationPool", destroyMethod = "shutdown")
+    public ForkJoinPool aggregationPool(@Value("${sales.aggregation.parallelism:0}") int parallelism) {
+        int size = parallelism > 0 ? parallelism : Math.min(Runtime.getRuntime().availableProcessors(), 8);
+        return new ForkJoinPool(size);
+    }
 }
@@ -0,0 +1,22 @@
+package org.ide.hack1.config;
+
+import org.ide.hack1.util.IdGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class IdGeneratorConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(IdGeneratorConfig.class);
+
+    // entities call IdGenerator statically from @PrePersist, so the node id is pushed in at startup
+    public IdGeneratorConfig(@Value("${ids.node-id:-1}") int nodeId) {
+        if (nodeId >= 0) {
+            IdGenerator.setNodeId(nodeId);
+        } else {
+            log.warn("ids.node-id not set, using random node id {}; set a distinct one per instance", IdGenerator.nodeId());
+        }
+    }
+}
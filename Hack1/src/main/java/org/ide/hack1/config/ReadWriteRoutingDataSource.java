@@ -0,0 +1,59 @@
+package org.ide.hack1.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * Envía las transacciones read-only a la réplica y todo lo demás al primario. Debe ir envuelto en un
+ * LazyConnectionDataSourceProxy: así la conexión se pide al ejecutar la primera sentencia, cuando
+ * el flag read-only de la transacción ya está fijado.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Target {
+        PRIMARY, REPLICA
+    }
+
+    private static final ThreadLocal<Integer> primaryScopes = ThreadLocal.withInitial(() -> 0);
+
+    private final boolean readsToPrimary;
+
+    public ReadWriteRoutingDataSource(boolean readsToPrimary) {
+        this.readsToPrimary = readsToPrimary;
+    }
+
+    /**
+     * Ejecuta {@code action} leyendo del primario aunque abra transacciones read-only; para lecturas
+     * que deben ver una escritura recién confirmada (read-your-writes). Sin réplica configurada no hace nada.
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        primaryScopes.set(primaryScopes.get() + 1);
+        try {
+            return action.get();
+        } finally {
+            int depth = primaryScopes.get() - 1;
+            if (depth == 0) {
+                primaryScopes.remove();
+            } else {
+                primaryScopes.set(depth);
+            }
+        }
+    }
+
+    /**
+     * True dentro de {@link #onPrimary} en este hilo.
+     */
+    public static boolean inPrimaryScope() {
+        return primaryScopes.get() > 0;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!readsToPrimary && primaryScopes.get() == 0 && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return Target.REPLICA;
+        }
+        return Target.PRIMARY;
+    }
+}
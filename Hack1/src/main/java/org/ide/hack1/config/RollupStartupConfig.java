@@ -0,0 +1,18 @@
+package org.ide.hack1.config;
+
+import org.ide.hack1.service.sales.SalesRollupService;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class RollupStartupConfig {
+
+    // one-off backfill: start once with sales.rollup.rebuild-on-startup=true after enabling the rollup
+    @Bean
+    @ConditionalOnProperty(name = "sales.rollup.rebuild-on-startup", havingValue = "true")
+    public ApplicationRunner rollupRebuildRunner(SalesRollupService salesRollupService) {
+        return args -> salesRollupService.reconcile(null, null, true);
+    }
+}
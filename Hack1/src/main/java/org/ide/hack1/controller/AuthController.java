@@ -5,7 +5,6 @@ import org.ide.hack1.dto.auth.LoginRequest;
 import org.ide.hack1.dto.auth.LoginResponse;
 import org.ide.hack1.dto.auth.RegisterRequest;
 import org.ide.hack1.dto.auth.UserResponse;
-import org.ide.hack1.entity.User;
 import org.ide.hack1.service.auth.AuthService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -14,6 +13,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/auth")
 public class AuthController {
@@ -24,16 +25,16 @@ public class AuthController {
         this.authService = authService;
     }
 
+    // completes asynchronously: the request thread is released while BCrypt runs
     @PostMapping("/register")
-    public ResponseEntity<UserResponse> register(@Valid @RequestBody RegisterRequest req) {
-        User created = authService.register(req);
-        UserResponse resp = authService.toUserResponse(created);
-        return ResponseEntity.status(HttpStatus.CREATED).body(resp);
+    public CompletableFuture<ResponseEntity<UserResponse>> register(@Valid @RequestBody RegisterRequest req) {
+        return authService.register(req)
+                .thenApply(user -> ResponseEntity.status(HttpStatus.CREATED).body(authService.toUserResponse(user)));
     }
 
+    // completes asynchronously: the request thread is released while BCrypt runs
     @PostMapping("/login")
-    public ResponseEntity<LoginResponse> login(@Valid @RequestBody LoginRequest req) {
-        LoginResponse resp = authService.login(req);
-        return ResponseEntity.ok(resp);
+    public CompletableFuture<ResponseEntity<LoginResponse>> login(@Valid @RequestBody LoginRequest req) {
+        return authService.login(req).thenApply(ResponseEntity::ok);
     }
 }
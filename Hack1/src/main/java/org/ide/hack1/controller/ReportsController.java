@@ -2,9 +2,11 @@ package org.ide.hack1.controller;
 
 import org.ide.hack1.dto.summary.SummaryResponseDTO;
 import org.ide.hack1.entity.ReportRequest;
-import org.ide.hack1.exception.ForbiddenException;
-import org.ide.hack1.exception.NotFoundException;
-import org.ide.hack1.repository.ReportRequestRepository;
+import org.ide.hack1.exception.BadRequestException;
+import org.ide.hack1.service.report.ReportStatusBroadcaster;
+import org.ide.hack1.service.report.ReportStatusService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
@@ -12,16 +14,26 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
 
 @RestController
 @RequestMapping("/reports")
 public class ReportsController {
 
-    private final ReportRequestRepository reportRequestRepository;
+    private final ReportStatusService reportStatusService;
+    private final ReportStatusBroadcaster reportStatusBroadcaster;
+    private final Duration maxWait;
 
-    public ReportsController(ReportRequestRepository reportRequestRepository) {
-        this.reportRequestRepository = reportRequestRepository;
+    public ReportsController(ReportStatusService reportStatusService, ReportStatusBroadcaster reportStatusBroadcaster,
+                             @Value("${reports.events.max-wait:30s}") Duration maxWait) {
+        this.reportStatusService = reportStatusService;
+        this.reportStatusBroadcaster = reportStatusBroadcaster;
+        this.maxWait = maxWait;
     }
 
     private String currentRole() {
@@ -43,22 +55,25 @@ public class ReportsController {
 
     @GetMapping("/{id}")
     public ResponseEntity<SummaryResponseDTO> getReport(@PathVariable String id) {
-        ReportRequest rr = reportRequestRepository.findById(id).orElseThrow(() -> new NotFoundException("report request not found"));
-        String role = currentRole();
-        String userBranch = currentBranch();
-        if ("BRANCH".equals(role) && rr.getBranch() != null && !rr.getBranch().equals(userBranch)) {
-            throw new ForbiddenException("branch users can only view their own reports");
+        ReportRequest rr = reportStatusService.findAuthorized(id, currentRole(), currentBranch());
+        return ResponseEntity.ok(reportStatusService.toDto(rr));
+    }
+
+    // long poll: GET /reports/{id}?wait=<seconds> answers when the report leaves PROCESSING, or with the current status at the deadline
+    @GetMapping(value = "/{id}", params = "wait")
+    public DeferredResult<SummaryResponseDTO> awaitReport(@PathVariable String id, @RequestParam long wait) {
+        if (wait < 0) {
+            throw new BadRequestException("wait must be zero or positive");
         }
+        Duration timeout = Duration.ofSeconds(Math.min(wait, maxWait.toSeconds()));
+        ReportRequest rr = reportStatusService.findAuthorized(id, currentRole(), currentBranch());
+        return reportStatusBroadcaster.awaitFinished(rr, timeout);
+    }
 
-        SummaryResponseDTO dto = SummaryResponseDTO.builder()
-                .requestId(rr.getId())
-                .status(rr.getStatus() != null ? rr.getStatus().name() : null)
-                .message(rr.getErrorMessage())
-                .estimatedTime(null)
-                .requestedAt(rr.getRequestedAt())
-                .summaryText(rr.getSummaryText())
-                .build();
-        return ResponseEntity.ok(dto);
+    // SSE: a "status" event now and another when the report finishes, then the stream closes
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamReport(@PathVariable String id) {
+        ReportRequest rr = reportStatusService.findAuthorized(id, currentRole(), currentBranch());
+        return reportStatusBroadcaster.stream(rr);
     }
 }
-
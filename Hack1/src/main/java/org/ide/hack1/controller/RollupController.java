@@ -0,0 +1,47 @@
+package org.ide.hack1.controller;
+
+import org.ide.hack1.dto.sales.RollupReconcileResponse;
+import org.ide.hack1.exception.ForbiddenException;
+import org.ide.hack1.service.sales.SalesRollupService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/sales/rollup")
+public class RollupController {
+
+    private final SalesRollupService salesRollupService;
+
+    public RollupController(SalesRollupService salesRollupService) {
+        this.salesRollupService = salesRollupService;
+    }
+
+    private String currentRole() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null) return null;
+        for (GrantedAuthority ga : auth.getAuthorities()) {
+            String a = ga.getAuthority();
+            if (a.startsWith("ROLE_")) return a.substring(5);
+        }
+        return null;
+    }
+
+    // Recomputes sales_daily_rollup from raw sales; repair=false only reports drift
+    @PostMapping("/reconcile")
+    public ResponseEntity<RollupReconcileResponse> reconcile(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                             @RequestParam Optional<Boolean> repair) {
+        if (!"CENTRAL".equals(currentRole())) {
+            throw new ForbiddenException("only CENTRAL users can perform this action");
+        }
+        RollupReconcileResponse resp = salesRollupService.reconcile(from, to, repair.orElse(false));
+        return ResponseEntity.ok(resp);
+    }
+}
@@ -1,42 +1,81 @@
 package org.ide.hack1.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.ide.hack1.dto.sales.SaleBatchResponse;
+import org.ide.hack1.dto.sales.SaleCursorPage;
 import org.ide.hack1.dto.sales.SaleRequest;
 import org.ide.hack1.dto.sales.SaleResponse;
 import org.ide.hack1.dto.summary.SummaryRequestDTO;
 import org.ide.hack1.dto.summary.SummaryResponseDTO;
 import org.ide.hack1.entity.ReportRequest;
 import org.ide.hack1.event.ReportRequestedEvent;
+import org.ide.hack1.exception.BadRequestException;
 import org.ide.hack1.exception.ForbiddenException;
 import org.ide.hack1.repository.ReportRequestRepository;
+import org.ide.hack1.service.report.ReportPeriod;
+import org.ide.hack1.service.sales.SalesBatchService;
+import org.ide.hack1.service.sales.SalesExportService;
 import org.ide.hack1.service.sales.SalesService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.data.domain.Page;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.Callable;
 
 @RestController
 @RequestMapping("/sales")
 public class SalesControlller {
 
     private final SalesService salesService;
+    private final SalesExportService salesExportService;
+    private final SalesBatchService salesBatchService;
+    private final ObjectMapper objectMapper;
     private final ReportRequestRepository reportRequestRepository;
     private final ApplicationEventPublisher eventPublisher;
+    private final AsyncTaskExecutor exportExecutor;
+    private final Duration exportTimeout;
 
-    public SalesControlller(SalesService salesService, ReportRequestRepository reportRequestRepository, ApplicationEventPublisher eventPublisher) {
+    public SalesControlller(SalesService salesService, SalesExportService salesExportService, SalesBatchService salesBatchService,
+                            ObjectMapper objectMapper, ReportRequestRepository reportRequestRepository, ApplicationEventPublisher eventPublisher,
+                            @Qualifier("exportExecutor") ThreadPoolTaskExecutor exportExecutor,
+                            @Value("${sales.export.timeout:30m}") Duration exportTimeout) {
         this.salesService = salesService;
+        this.salesExportService = salesExportService;
+        this.salesBatchService = salesBatchService;
+        this.objectMapper = objectMapper;
         this.reportRequestRepository = reportRequestRepository;
         this.eventPublisher = eventPublisher;
+        this.exportExecutor = exportExecutor;
+        this.exportTimeout = exportTimeout;
     }
 
     private String currentUsername() {
@@ -70,6 +109,38 @@ public class SalesControlller {
         return ResponseEntity.status(HttpStatus.CREATED).body(resp);
     }
 
+    // bulk ingestion: a JSON array or one SaleRequest per line (NDJSON); each item gets its own result
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<SaleBatchResponse> createSalesBatch(@RequestBody List<SaleRequest> items) {
+        SaleBatchResponse resp = salesBatchService.createSales(items, null, currentUsername(), currentRole(), currentBranch());
+        return ResponseEntity.ok(resp);
+    }
+
+    @PostMapping(value = "/batch", consumes = "application/x-ndjson")
+    public ResponseEntity<SaleBatchResponse> createSalesBatchNdjson(InputStream body) throws IOException {
+        List<SaleRequest> items = new ArrayList<>();
+        List<String> parseErrors = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        int lineNo = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            if (line.isBlank()) continue;
+            if (items.size() == salesBatchService.maxItems()) {
+                throw new BadRequestException("batch exceeds " + salesBatchService.maxItems() + " items");
+            }
+            try {
+                items.add(objectMapper.readValue(line, SaleRequest.class));
+                parseErrors.add(null);
+            } catch (JsonProcessingException ex) {
+                items.add(null);
+                parseErrors.add("line " + lineNo + ": invalid JSON");
+            }
+        }
+        SaleBatchResponse resp = salesBatchService.createSales(items, parseErrors, currentUsername(), currentRole(), currentBranch());
+        return ResponseEntity.ok(resp);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<SaleResponse> getSale(@PathVariable String id) {
         String role = currentRole();
@@ -79,11 +150,12 @@ public class SalesControlller {
     }
 
     @GetMapping
-    public ResponseEntity<Page<SaleResponse>> listSales(@RequestParam Optional<String> from,
+    public ResponseEntity<Slice<SaleResponse>> listSales(@RequestParam Optional<String> from,
                                         @RequestParam Optional<String> to,
                                         @RequestParam Optional<String> branch,
                                         @RequestParam Optional<Integer> page,
-                                        @RequestParam Optional<Integer> size) {
+                                        @RequestParam Optional<Integer> size,
+                                        @RequestParam Optional<Boolean> count) {
         Instant fromInst = from.map(Instant::parse).orElse(Instant.EPOCH);
         Instant toInst = to.map(Instant::parse).orElse(Instant.now());
         int p = page.orElse(0);
@@ -91,10 +163,57 @@ public class SalesControlller {
         PageRequest pr = PageRequest.of(p, s);
         String role = currentRole();
         String userBranch = currentBranch();
-        Page<SaleResponse> results = salesService.listSales(fromInst, toInst, branch.orElse(null), pr, role, userBranch);
+        // count=false skips the count(*) query; the response then has no totalElements/totalPages
+        Slice<SaleResponse> results = count.orElse(true)
+                ? salesService.listSales(fromInst, toInst, branch.orElse(null), pr, role, userBranch)
+                : salesService.listSalesSlice(fromInst, toInst, branch.orElse(null), pr, role, userBranch);
+        return ResponseEntity.ok(results);
+    }
+
+    // cursor mode: GET /sales?cursor= (empty for the first page), then pass back nextCursor
+    @GetMapping(params = "cursor")
+    public ResponseEntity<SaleCursorPage> listSalesByCursor(@RequestParam Optional<String> from,
+                                                            @RequestParam Optional<String> to,
+                                                            @RequestParam Optional<String> branch,
+                                                            @RequestParam String cursor,
+                                                            @RequestParam Optional<Integer> size) {
+        Instant fromInst = from.map(Instant::parse).orElse(Instant.EPOCH);
+        Instant toInst = to.map(Instant::parse).orElse(Instant.now());
+        int s = size.orElse(20);
+        if (s < 1 || s > 1000) {
+            throw new BadRequestException("size must be between 1 and 1000");
+        }
+        String role = currentRole();
+        String userBranch = currentBranch();
+        SaleCursorPage results = salesService.listSalesAfter(fromInst, toInst, branch.orElse(null), cursor, s, role, userBranch);
         return ResponseEntity.ok(results);
     }
 
+    // streams every matching row as CSV or NDJSON; the body is written after the handler returns
+    @GetMapping("/export")
+    public WebAsyncTask<Void> exportSales(@RequestParam Optional<String> from,
+                                          @RequestParam Optional<String> to,
+                                          @RequestParam Optional<String> branch,
+                                          @RequestParam Optional<String> format,
+                                          HttpServletResponse response) {
+        Instant fromInst = from.map(Instant::parse).orElse(Instant.EPOCH);
+        Instant toInst = to.map(Instant::parse).orElse(Instant.now());
+        SalesExportService.Format fmt = SalesExportService.Format.parse(format.orElse(null));
+        // resolve the caller on the request thread; the body runs on exportExecutor
+        String role = currentRole();
+        String userBranch = currentBranch();
+        String requested = branch.orElse(null);
+        String filename = "sales." + fmt.name().toLowerCase(Locale.ROOT);
+        response.setContentType(fmt.contentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+        Callable<Void> body = () -> {
+            salesExportService.export(fromInst, toInst, requested, fmt, role, userBranch, response.getOutputStream());
+            return null;
+        };
+        // export's own pool and timeout; other async endpoints keep the MVC defaults
+        return new WebAsyncTask<>(exportTimeout.toMillis(), exportExecutor, body);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<SaleResponse> updateSale(@PathVariable String id, @Valid @RequestBody SaleRequest req) {
         String role = currentRole();
@@ -122,13 +241,11 @@ public class SalesControlller {
         String branch = req.getBranch();
         String emailTo = req.getEmailTo();
 
-        // default to last 7 days if not provided
+        // default to last 7 days if not provided (the range ReportPrecomputeScheduler prepares off-peak)
         if (from == null || to == null) {
-            // last full 7 days ending yesterday
-            LocalDate end = LocalDate.now(ZoneOffset.UTC).minusDays(1);
-            LocalDate start = end.minusDays(6);
-            if (from == null) from = start;
-            if (to == null) to = end;
+            ReportPeriod lastWeek = ReportPeriod.lastSevenDays(LocalDate.now(ZoneOffset.UTC));
+            if (from == null) from = lastWeek.from();
+            if (to == null) to = lastWeek.to();
         }
 
         // BRANCH users can only request for their own branch
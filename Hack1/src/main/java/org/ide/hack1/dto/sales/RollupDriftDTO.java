@@ -0,0 +1,18 @@
+package org.ide.hack1.dto.sales;
+
+import lombok.*;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RollupDriftDTO {
+    private LocalDate day;
+    private String branch;
+    private String sku;
+    private long expectedUnits;
+    private long actualUnits;
+    private double expectedRevenue;
+    private double actualRevenue;
+}
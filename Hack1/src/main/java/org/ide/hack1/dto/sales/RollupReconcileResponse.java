@@ -0,0 +1,20 @@
+package org.ide.hack1.dto.sales;
+
+import lombok.*;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RollupReconcileResponse {
+    private LocalDate from;
+    private LocalDate to;
+    private int daysChecked;
+    private long groupsChecked;
+    private long driftCount;
+    private boolean repaired;
+    // capped list of drifted groups, driftCount holds the full number
+    private List<RollupDriftDTO> drifts;
+}
@@ -0,0 +1,19 @@
+package org.ide.hack1.dto.sales;
+
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SaleBatchItemResult {
+    // position of the item in the request body (0-based; for NDJSON, the line number - 1)
+    private int index;
+    private Status status;
+    private String id;
+    private String error;
+
+    public enum Status {
+        CREATED, REJECTED, FAILED
+    }
+}
@@ -0,0 +1,16 @@
+package org.ide.hack1.dto.sales;
+
+import lombok.*;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SaleBatchResponse {
+    private int received;
+    private int created;
+    private int rejected;
+    private int failed;
+    private List<SaleBatchItemResult> results;
+}
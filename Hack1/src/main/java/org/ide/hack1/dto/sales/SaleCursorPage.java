@@ -0,0 +1,16 @@
+package org.ide.hack1.dto.sales;
+
+import lombok.*;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SaleCursorPage {
+    private List<SaleResponse> content;
+    private int size;
+    private boolean hasNext;
+    // opaque token for the next request (?cursor=...), null on the last page
+    private String nextCursor;
+}
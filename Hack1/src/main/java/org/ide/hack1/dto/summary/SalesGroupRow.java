@@ -0,0 +1,17 @@
+package org.ide.hack1.dto.summary;
+
+import lombok.*;
+
+/**
+ * Una fila agrupada por (sku, branch): unidades y revenue ya sumados en la base de datos.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesGroupRow {
+    private String sku;
+    private String branch;
+    private long units;
+    private double revenue;
+}
@@ -16,5 +16,7 @@ public class SummaryResponseDTO {
     private Instant requestedAt;
     private List<String> features;
     private String summaryText;
+    private String summarySource;
+    private String emailStatus;
 }
 
@@ -5,16 +5,21 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
 import lombok.*;
+import org.ide.hack1.util.IdGenerator;
 
 import java.time.Instant;
 import java.time.LocalDate;
-import java.util.UUID;
 
 @Entity
-@Table(name = "report_requests")
+@Table(name = "report_requests", indexes = {
+        @Index(name = "idx_report_requests_requested_by", columnList = "requested_by"),
+        @Index(name = "idx_report_requests_status", columnList = "status"),
+        @Index(name = "idx_report_requests_status_lease", columnList = "status, lease_expires_at")
+})
 @Getter @Setter
 @NoArgsConstructor
 @AllArgsConstructor
@@ -56,10 +61,25 @@ public class ReportRequest {
     @Column(name = "error_message", columnDefinition = "TEXT")
     private String errorMessage;
 
+    // COMPUTED, or STORED when a summary of the same closed period and data version was reused
+    @Enumerated(EnumType.STRING)
+    @Column(name = "summary_source", length = 20)
+    private SummarySource summarySource;
+
+    // job lease, written only by ReportJobQueue: the worker holding it and until when
+    @Column(name = "lease_owner", length = 64)
+    private String leaseOwner;
+
+    @Column(name = "lease_expires_at")
+    private Instant leaseExpiresAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
     @PrePersist
     public void prePersist() {
         if (this.id == null || this.id.isBlank()) {
-            this.id = "req_" + UUID.randomUUID().toString().replace("-", "");
+            this.id = IdGenerator.newId("req_");
         }
         if (this.requestedAt == null) {
             this.requestedAt = Instant.now();
@@ -75,4 +95,9 @@ public class ReportRequest {
         FAILED
     }
 
+    public enum SummarySource {
+        COMPUTED,
+        STORED
+    }
+
 }
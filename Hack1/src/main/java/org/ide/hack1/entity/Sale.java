@@ -3,14 +3,18 @@ package org.ide.hack1.entity;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
 import lombok.*;
+import org.ide.hack1.util.IdGenerator;
 
 import java.time.Instant;
-import java.util.UUID;
 @Entity
-@Table(name = "sales")
+@Table(name = "sales", indexes = {
+        @Index(name = "idx_sales_sold_at_id", columnList = "sold_at, id"),
+        @Index(name = "idx_sales_branch_sold_at_id", columnList = "branch, sold_at, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -46,7 +50,7 @@ public class Sale {
     @PrePersist
     public void prePersist() {
         if (this.id == null || this.id.isBlank()) {
-            this.id = "s_" + UUID.randomUUID().toString().replace("-", "");
+            this.id = IdGenerator.newId("s_");
         }
         if (this.createdAt == null) {
             this.createdAt = Instant.now();
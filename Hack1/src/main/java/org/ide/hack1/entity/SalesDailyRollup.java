@@ -0,0 +1,53 @@
+package org.ide.hack1.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Totales diarios (UTC) por sucursal y SKU, mantenidos en la misma transacción que las ventas.
+ */
+@Entity
+@Table(name = "sales_daily_rollup")
+@IdClass(SalesDailyRollup.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesDailyRollup {
+
+    @Id
+    @Column(name = "sale_day", nullable = false)
+    private LocalDate saleDay;
+
+    @Id
+    @Column(nullable = false)
+    private String branch;
+
+    @Id
+    @Column(nullable = false)
+    private String sku;
+
+    @Column(nullable = false)
+    private long units;
+
+    @Column(nullable = false)
+    private double revenue;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate saleDay;
+        private String branch;
+        private String sku;
+    }
+
+}
@@ -8,10 +8,10 @@ import jakarta.persistence.Id;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
 import java.time.Instant;
-import java.util.UUID;
 
 import lombok.*;
 import org.ide.hack1.security.model.Role;
+import org.ide.hack1.util.IdGenerator;
 
 @Entity
 @Table(name = "users")
@@ -48,7 +48,7 @@ public class User {
     @PrePersist
     public void prePersist() {
         if (this.id == null || this.id.isBlank()) {
-            this.id = "u_" + UUID.randomUUID().toString().replace("-", "");
+            this.id = IdGenerator.newId("u_");
         }
         if (this.createdAt == null) {
             this.createdAt = Instant.now();
@@ -0,0 +1,14 @@
+package org.ide.hack1.event;
+
+public class ReportFinishedEvent {
+
+    private final String requestId;
+
+    public ReportFinishedEvent(String requestId) {
+        this.requestId = requestId;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+}
@@ -0,0 +1,5 @@
+package org.ide.hack1.exception;
+
+public class ServiceUnavailableException extends RuntimeException {
+    public ServiceUnavailableException(String message) { super(message); }
+}
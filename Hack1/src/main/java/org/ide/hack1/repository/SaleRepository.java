@@ -1,21 +1,84 @@
 package org.ide.hack1.repository;
 
-    import org.ide.hack1.entity.Sale;
+import org.ide.hack1.dto.sales.SaleResponse;
+import org.ide.hack1.dto.summary.SalesGroupRow;
+import org.ide.hack1.entity.Sale;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 
 
 @Repository
 public interface SaleRepository extends JpaRepository<Sale, String> {
 
-    List<Sale> findBySoldAtBetween(Instant from, Instant to);
+    // Read path: select straight into SaleResponse so list pages never hydrate managed Sale entities
+    String SALE_RESPONSE = "select new org.ide.hack1.dto.sales.SaleResponse(" +
+            "s.id, s.sku, s.units, s.price, s.branch, s.soldAt, s.createdBy, s.createdAt) from Sale s ";
 
-    Page<Sale> findBySoldAtBetweenAndBranch(Instant from, Instant to, String branch, Pageable pageable);
+    @Query(SALE_RESPONSE + "where s.id = :id")
+    Optional<SaleResponse> findResponseById(@Param("id") String id);
+
+    @Query(value = SALE_RESPONSE + "where s.soldAt between :from and :to",
+            countQuery = "select count(s) from Sale s where s.soldAt between :from and :to")
+    Page<SaleResponse> findBySoldAtBetween(@Param("from") Instant from, @Param("to") Instant to, Pageable pageable);
+
+    @Query(value = SALE_RESPONSE + "where s.soldAt between :from and :to and s.branch = :branch",
+            countQuery = "select count(s) from Sale s where s.soldAt between :from and :to and s.branch = :branch")
+    Page<SaleResponse> findBySoldAtBetweenAndBranch(@Param("from") Instant from, @Param("to") Instant to,
+                                                    @Param("branch") String branch, Pageable pageable);
+
+    // Slice variants skip the count(*) query; they fetch size + 1 rows to know if there is a next page
+    @Query(SALE_RESPONSE + "where s.soldAt between :from and :to")
+    Slice<SaleResponse> findSliceBySoldAtBetween(@Param("from") Instant from, @Param("to") Instant to, Pageable pageable);
+
+    @Query(SALE_RESPONSE + "where s.soldAt between :from and :to and s.branch = :branch")
+    Slice<SaleResponse> findSliceBySoldAtBetweenAndBranch(@Param("from") Instant from, @Param("to") Instant to,
+                                                          @Param("branch") String branch, Pageable pageable);
 
     Page<Sale> findByBranch(String branch, Pageable pageable);
 
+    // Keyset (seek) pagination ordered by (soldAt, id): the next page starts after the last row seen, no OFFSET
+    @Query(SALE_RESPONSE + "where s.soldAt between :from and :to order by s.soldAt, s.id")
+    List<SaleResponse> findFirstKeysetPage(@Param("from") Instant from, @Param("to") Instant to, Pageable limit);
+
+    @Query(SALE_RESPONSE + "where s.soldAt between :from and :to " +
+            "and (s.soldAt > :lastSoldAt or (s.soldAt = :lastSoldAt and s.id > :lastId)) order by s.soldAt, s.id")
+    List<SaleResponse> findKeysetPageAfter(@Param("from") Instant from, @Param("to") Instant to,
+                                           @Param("lastSoldAt") Instant lastSoldAt, @Param("lastId") String lastId, Pageable limit);
+
+    @Query(SALE_RESPONSE + "where s.soldAt between :from and :to and s.branch = :branch order by s.soldAt, s.id")
+    List<SaleResponse> findFirstKeysetPageForBranch(@Param("from") Instant from, @Param("to") Instant to, @Param("branch") String branch, Pageable limit);
+
+    @Query(SALE_RESPONSE + "where s.soldAt between :from and :to and s.branch = :branch " +
+            "and (s.soldAt > :lastSoldAt or (s.soldAt = :lastSoldAt and s.id > :lastId)) order by s.soldAt, s.id")
+    List<SaleResponse> findKeysetPageAfterForBranch(@Param("from") Instant from, @Param("to") Instant to, @Param("branch") String branch,
+                                                    @Param("lastSoldAt") Instant lastSoldAt, @Param("lastId") String lastId, Pageable limit);
+
+    // Aggregation queries: group in the database so only (sku, branch) totals travel to the JVM
+    @Query("select new org.ide.hack1.dto.summary.SalesGroupRow(s.sku, s.branch, sum(s.units), sum(s.units * s.price)) " +
+            "from Sale s where s.soldAt between :from and :to group by s.sku, s.branch")
+    List<SalesGroupRow> sumBySkuAndBranch(@Param("from") Instant from, @Param("to") Instant to);
+
+    @Query("select new org.ide.hack1.dto.summary.SalesGroupRow(s.sku, s.branch, sum(s.units), sum(s.units * s.price)) " +
+            "from Sale s where s.soldAt between :from and :to and s.branch = :branch group by s.sku, s.branch")
+    List<SalesGroupRow> sumBySkuAndBranchForBranch(@Param("from") Instant from, @Param("to") Instant to, @Param("branch") String branch);
+
+    // half-open [from, to) variant, used to rebuild one day of the daily rollup
+    @Query("select new org.ide.hack1.dto.summary.SalesGroupRow(s.sku, s.branch, sum(s.units), sum(s.units * s.price)) " +
+            "from Sale s where s.soldAt >= :from and s.soldAt < :to group by s.sku, s.branch")
+    List<SalesGroupRow> sumBySkuAndBranchUntil(@Param("from") Instant from, @Param("to") Instant toExclusive);
+
+    @Query("select min(s.soldAt) from Sale s")
+    Instant findFirstSoldAt();
+
+    @Query("select max(s.soldAt) from Sale s")
+    Instant findLastSoldAt();
+
 }
@@ -0,0 +1,38 @@
+package org.ide.hack1.repository;
+
+import org.ide.hack1.dto.summary.SalesGroupRow;
+import org.ide.hack1.entity.SalesDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface SalesDailyRollupRepository extends JpaRepository<SalesDailyRollup, SalesDailyRollup.Key> {
+
+    List<SalesDailyRollup> findBySaleDay(LocalDate saleDay);
+
+    @Query("select distinct r.branch from SalesDailyRollup r where r.saleDay between :from and :to and r.units > 0")
+    List<String> findBranchesWithSales(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // native so every write can take a new version from sales_rollup_version_seq (not mapped on the entity)
+    @Modifying
+    @Query(value = "update sales_daily_rollup set units = :units, revenue = :revenue, " +
+            "version = nextval('sales_rollup_version_seq') where sale_day = :day and branch = :branch and sku = :sku",
+            nativeQuery = true)
+    int setTotals(@Param("day") LocalDate day, @Param("branch") String branch, @Param("sku") String sku,
+                  @Param("units") long units, @Param("revenue") double revenue);
+
+    // groups whose sales were all deleted keep a zero row; having skips them like the raw GROUP BY would
+    @Query("select new org.ide.hack1.dto.summary.SalesGroupRow(r.sku, r.branch, sum(r.units), sum(r.revenue)) " +
+            "from SalesDailyRollup r where r.saleDay between :from and :to group by r.sku, r.branch having sum(r.units) > 0")
+    List<SalesGroupRow> sumBySkuAndBranch(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("select new org.ide.hack1.dto.summary.SalesGroupRow(r.sku, r.branch, sum(r.units), sum(r.revenue)) " +
+            "from SalesDailyRollup r where r.saleDay between :from and :to and r.branch = :branch group by r.sku, r.branch having sum(r.units) > 0")
+    List<SalesGroupRow> sumBySkuAndBranchForBranch(@Param("from") LocalDate from, @Param("to") LocalDate to, @Param("branch") String branch);
+}
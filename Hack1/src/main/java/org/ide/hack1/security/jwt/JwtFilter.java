@@ -28,25 +28,18 @@ public class JwtFilter extends OncePerRequestFilter {
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
             try {
-                if (jwtProvider.validateToken(token)) {
-                    String username = jwtProvider.getUsernameFromToken(token);
-                    String role = jwtProvider.getRoleFromToken(token);
-                    String branch = null;
-                    try {
-                        branch = jwtProvider.getBranchFromToken(token);
-                    } catch (Exception e) {
-                        // ignore
-                    }
-                    String roleName = role != null && !role.isBlank() ? "ROLE_" + role : "";
-                    UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(
-                            username,
-                            null,
-                            roleName.isBlank() ? Collections.emptyList() : Collections.singletonList(new SimpleGrantedAuthority(roleName))
-                    );
-                    // store branch in details for later retrieval
-                    auth.setDetails(branch);
-                    SecurityContextHolder.getContext().setAuthentication(auth);
-                }
+                // one verification (or a cache hit) gives username, role and branch together
+                JwtPrincipal principal = jwtProvider.verify(token);
+                String role = principal.role();
+                String roleName = role != null && !role.isBlank() ? "ROLE_" + role : "";
+                UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(
+                        principal.username(),
+                        null,
+                        roleName.isBlank() ? Collections.emptyList() : Collections.singletonList(new SimpleGrantedAuthority(roleName))
+                );
+                // store branch in details for later retrieval
+                auth.setDetails(principal.branch());
+                SecurityContextHolder.getContext().setAuthentication(auth);
             } catch (Exception ex) {
                 // invalid token - clear context and continue (request will be rejected if endpoint requires auth)
                 SecurityContextHolder.clearContext();
@@ -0,0 +1,13 @@
+package org.ide.hack1.security.jwt;
+
+import java.time.Instant;
+
+/**
+ * Claims de un token ya verificado. role y branch pueden ser null.
+ */
+public record JwtPrincipal(String username, String role, String branch, Instant expiresAt) {
+
+    public boolean isExpired(Instant now) {
+        return expiresAt != null && !now.isBefore(expiresAt);
+    }
+}
@@ -9,9 +9,14 @@ import org.ide.hack1.entity.User;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.util.Base64;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Component
 public class JwtProvider {
@@ -20,11 +25,22 @@ public class JwtProvider {
     private final long expirationSeconds;
     private Algorithm algorithm;
     private JWTVerifier verifier;
+    private final int cacheMaxEntries;
+    // LRU of verified tokens, access-ordered
+    private final Map<String, JwtPrincipal> cache;
 
     public JwtProvider(@Value("${jwt.secret}") String secret,
-                       @Value("${jwt.expirationSeconds:3600}") long expirationSeconds) {
+                       @Value("${jwt.expirationSeconds:3600}") long expirationSeconds,
+                       @Value("${jwt.cache.max-entries:10000}") int cacheMaxEntries) {
         this.secret = secret;
         this.expirationSeconds = expirationSeconds;
+        this.cacheMaxEntries = cacheMaxEntries;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, JwtPrincipal> eldest) {
+                return size() > cacheMaxEntries;
+            }
+        };
         init();
     }
 
@@ -65,27 +81,63 @@ public class JwtProvider {
         return builder.sign(algorithm);
     }
 
+    /**
+     * Verifica firma y expiración una sola vez y devuelve los claims. Los tokens ya verificados se sirven
+     * desde una caché acotada (clave: SHA-256 del token) hasta que expiran.
+     *
+     * @throws JWTVerificationException si el token no es válido
+     */
+    public JwtPrincipal verify(String token) {
+        if (cacheMaxEntries <= 0) {
+            return decode(verifier.verify(token));
+        }
+        String key = digest(token);
+        Instant now = Instant.now();
+        synchronized (cache) {
+            JwtPrincipal cached = cache.get(key);
+            if (cached != null) {
+                if (!cached.isExpired(now)) return cached;
+                cache.remove(key);
+            }
+        }
+        // verify outside the lock; two threads racing on a new token both verify, which is harmless
+        JwtPrincipal principal = decode(verifier.verify(token));
+        synchronized (cache) {
+            cache.put(key, principal);
+        }
+        return principal;
+    }
+
     public boolean validateToken(String token) {
         try {
-            verifier.verify(token);
+            verify(token);
             return true;
         } catch (JWTVerificationException ex) {
             return false;
         }
     }
 
-    public String getUsernameFromToken(String token) {
-        DecodedJWT decoded = verifier.verify(token);
-        return decoded.getSubject();
+    int cacheSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
     }
 
-    public String getRoleFromToken(String token) {
-        DecodedJWT decoded = verifier.verify(token);
-        return decoded.getClaim("role").asString();
+    private static JwtPrincipal decode(DecodedJWT decoded) {
+        Date expiresAt = decoded.getExpiresAt();
+        return new JwtPrincipal(decoded.getSubject(),
+                decoded.getClaim("role").asString(),
+                decoded.getClaim("branch").asString(),
+                expiresAt != null ? expiresAt.toInstant() : null);
     }
 
-    public String getBranchFromToken(String token) {
-        DecodedJWT decoded = verifier.verify(token);
-        return decoded.getClaim("branch").asString();
+    // the cache keeps digests, not bearer tokens
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
     }
 }
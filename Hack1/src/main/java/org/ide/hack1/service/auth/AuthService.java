@@ -1,5 +1,6 @@
 package org.ide.hack1.service.auth;
 
+import org.ide.hack1.config.ReadWriteRoutingDataSource;
 import org.ide.hack1.dto.auth.LoginRequest;
 import org.ide.hack1.dto.auth.LoginResponse;
 import org.ide.hack1.dto.auth.RegisterRequest;
@@ -11,33 +12,46 @@ import org.ide.hack1.exception.UnauthorizedException;
 import org.ide.hack1.repository.UserRepository;
 import org.ide.hack1.security.jwt.JwtProvider;
 import org.ide.hack1.security.model.Role;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.ide.hack1.exception.ServiceUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @Service
 public class AuthService {
 
+    private static final Logger log = LoggerFactory.getLogger(AuthService.class);
+
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final JwtProvider jwtProvider;
+    private final Executor dbExecutor;
 
     public AuthService(UserRepository userRepository,
-                       PasswordEncoder passwordEncoder,
-                       JwtProvider jwtProvider) {
+                       PasswordHashingService passwordHashingService,
+                       JwtProvider jwtProvider,
+                       @Qualifier("taskExecutor") Executor dbExecutor) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
         this.jwtProvider = jwtProvider;
+        this.dbExecutor = dbExecutor;
     }
 
-    public User register(RegisterRequest req) {
-        // validate uniqueness
-        Optional<User> byUsername = userRepository.findByUsername(req.getUsername());
+    // completes asynchronously like login: the hash runs on the bcrypt pool and the save on dbExecutor, so neither
+    // a request thread waits for BCrypt nor a bcrypt thread holds a DB connection; a full pool fails fast with
+    // ServiceUnavailableException (503)
+    public CompletableFuture<User> register(RegisterRequest req) {
+        // validate uniqueness (against the primary: a replica may not have a user registered a moment ago)
+        Optional<User> byUsername = ReadWriteRoutingDataSource.onPrimary(() -> userRepository.findByUsername(req.getUsername()));
         if (byUsername.isPresent()) {
             throw new ConflictException("username already exists");
         }
-        Optional<User> byEmail = userRepository.findByEmail(req.getEmail());
+        Optional<User> byEmail = ReadWriteRoutingDataSource.onPrimary(() -> userRepository.findByEmail(req.getEmail()));
         if (byEmail.isPresent()) {
             throw new ConflictException("email already exists");
         }
@@ -53,24 +67,52 @@ public class AuthService {
             throw new BadRequestException("branch is required for BRANCH role");
         }
 
-        User user = new User();
-        user.setUsername(req.getUsername());
-        user.setEmail(req.getEmail());
-        user.setPassword(passwordEncoder.encode(req.getPassword()));
-        user.setRole(role);
-        user.setBranch(role == Role.BRANCH ? req.getBranch() : null);
-
-        return userRepository.save(user);
+        return passwordHashingService.hash(req.getPassword()).thenApplyAsync(hash -> {
+            User user = new User();
+            user.setUsername(req.getUsername());
+            user.setEmail(req.getEmail());
+            user.setPassword(hash);
+            user.setRole(role);
+            user.setBranch(role == Role.BRANCH ? req.getBranch() : null);
+            return userRepository.save(user);
+        }, dbExecutor);
     }
 
-    public LoginResponse login(LoginRequest req) {
-        User user = userRepository.findByUsername(req.getUsername())
+    public CompletableFuture<LoginResponse> login(LoginRequest req) {
+        // credentials are checked against the primary so a login right after register or a password change sees it
+        User user = ReadWriteRoutingDataSource.onPrimary(() -> userRepository.findByUsername(req.getUsername()))
                 .orElseThrow(() -> new UnauthorizedException("invalid credentials"));
 
-        if (!passwordEncoder.matches(req.getPassword(), user.getPassword())) {
-            throw new UnauthorizedException("invalid credentials");
+        return passwordHashingService.matches(req.getPassword(), user.getPassword()).thenApply(ok -> {
+            if (!ok) {
+                throw new UnauthorizedException("invalid credentials");
+            }
+            rehashIfNeeded(user, req.getPassword());
+            return toLoginResponse(user);
+        });
+    }
+
+    // upgrade-on-login: a hash made with an older auth.bcrypt.strength is replaced in the background
+    private void rehashIfNeeded(User user, String rawPassword) {
+        String oldHash = user.getPassword();
+        if (!passwordHashingService.needsRehash(oldHash)) {
+            return;
         }
+        try {
+            passwordHashingService.hash(rawPassword)
+                    // the update leaves the bcrypt pool: its threads only hash
+                    .thenAcceptAsync(newHash -> userRepository.replacePasswordHash(user.getId(), oldHash, newHash), dbExecutor)
+                    .exceptionally(ex -> {
+                        log.warn("Password rehash failed for user {}: {}", user.getUsername(), ex.getMessage());
+                        return null;
+                    });
+        } catch (ServiceUnavailableException ex) {
+            // pool is busy; the next login tries again
+            log.debug("Skipping password rehash for user {}: {}", user.getUsername(), ex.getMessage());
+        }
+    }
 
+    private LoginResponse toLoginResponse(User user) {
         String token = jwtProvider.generateToken(user);
         long expiresIn = jwtProvider != null ? Long.parseLong(System.getProperty("jwt.expirationSeconds", "3600")) : 3600L;
 
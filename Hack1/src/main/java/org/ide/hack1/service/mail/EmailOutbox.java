@@ -0,0 +1,118 @@
+package org.ide.hack1.service.mail;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Tabla email_outbox. {@link #enqueue} se une a la transacción del llamador (el email existe solo si
+ * el reporte quedó DONE); el resto lo usa {@link EmailOutboxDispatcher}, y cada transición exige seguir
+ * siendo el dueño del lease, igual que la cola de reportes.
+ */
+@Component
+public class EmailOutbox {
+
+    public enum Status {
+        PENDING,
+        SENT,
+        FAILED
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public EmailOutbox(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void enqueue(OutboxEmail email) {
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.update(
+                "insert into email_outbox (id, report_request_id, recipient, subject, body, status, attempts, next_attempt_at, created_at) "
+                        + "values (?, ?, ?, ?, ?, 'PENDING', 0, ?, ?)",
+                email.id(), email.reportRequestId(), email.to(), email.subject(), email.body(), now, now);
+    }
+
+    /**
+     * Reclama hasta {@code limit} emails vencidos para {@code owner} durante {@code lease} y suma un intento
+     * a cada uno; los bloqueados por otro dispatcher se saltan.
+     */
+    public List<OutboxEmail> claim(String owner, int limit, Duration lease) {
+        Instant now = Instant.now();
+        Timestamp leaseEnd = Timestamp.from(now.plus(lease));
+        return transactionTemplate.execute(status -> {
+            List<OutboxEmail> due = jdbcTemplate.query(
+                    "select id, report_request_id, recipient, subject, body, attempts from email_outbox "
+                            + "where status = 'PENDING' and next_attempt_at <= ? "
+                            + "order by next_attempt_at limit ? for update skip locked",
+                    (rs, i) -> new OutboxEmail(rs.getString("id"), rs.getString("report_request_id"), rs.getString("recipient"),
+                            rs.getString("subject"), rs.getString("body"), rs.getInt("attempts") + 1),
+                    Timestamp.from(now), limit);
+            if (!due.isEmpty()) {
+                jdbcTemplate.batchUpdate(
+                        "update email_outbox set lease_owner = ?, next_attempt_at = ?, attempts = attempts + 1 where id = ?",
+                        due, due.size(), (ps, email) -> {
+                            ps.setString(1, owner);
+                            ps.setTimestamp(2, leaseEnd);
+                            ps.setString(3, email.id());
+                        });
+            }
+            return due;
+        });
+    }
+
+    public void markSent(List<OutboxEmail> emails, String owner) {
+        if (emails.isEmpty()) return;
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate(
+                "update email_outbox set status = 'SENT', sent_at = ?, last_error = null, lease_owner = null "
+                        + "where id = ? and lease_owner = ? and status = 'PENDING'",
+                emails, emails.size(), (ps, email) -> {
+                    ps.setTimestamp(1, now);
+                    ps.setString(2, email.id());
+                    ps.setString(3, owner);
+                });
+    }
+
+    /**
+     * Suelta el lease; el email vuelve a estar vencido en {@code retryAt}.
+     */
+    public boolean retryLater(OutboxEmail email, String owner, String error, Instant retryAt) {
+        return jdbcTemplate.update(
+                "update email_outbox set last_error = ?, next_attempt_at = ?, lease_owner = null "
+                        + "where id = ? and lease_owner = ? and status = 'PENDING'",
+                error, Timestamp.from(retryAt), email.id(), owner) == 1;
+    }
+
+    /**
+     * Marca FAILED y deja el error también en el reporte, donde antes quedaban los errores de envío.
+     */
+    public boolean fail(OutboxEmail email, String owner, String error) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            int updated = jdbcTemplate.update(
+                    "update email_outbox set status = 'FAILED', last_error = ?, lease_owner = null "
+                            + "where id = ? and lease_owner = ? and status = 'PENDING'",
+                    error, email.id(), owner);
+            if (updated == 1 && email.reportRequestId() != null) {
+                jdbcTemplate.update("update report_requests set error_message = ? where id = ?",
+                        "email error: " + error, email.reportRequestId());
+            }
+            return updated == 1;
+        }));
+    }
+
+    public Optional<Status> statusForReport(String reportRequestId) {
+        List<String> found = jdbcTemplate.queryForList(
+                "select status from email_outbox where report_request_id = ? order by created_at desc limit 1",
+                String.class, reportRequestId);
+        return found.stream().findFirst().map(Status::valueOf);
+    }
+}
@@ -0,0 +1,153 @@
+package org.ide.hack1.service.mail;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.ide.hack1.util.IdGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Entrega los emails de email_outbox en lotes de {@code mail.outbox.batch-size}, cada lote por una sola
+ * conexión SMTP. Un envío fallido se reintenta con backoff exponencial hasta {@code mail.outbox.max-attempts}
+ * y luego queda FAILED. Corre en mailExecutor: ni el scheduler ni los workers de reportes esperan al SMTP.
+ */
+@Service
+public class EmailOutboxDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+
+    private final EmailOutbox outbox;
+    private final EmailService emailService;
+    private final Executor mailExecutor;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration lease;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter failed;
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final AtomicBoolean wakePending = new AtomicBoolean();
+    private final String dispatcherId = IdGenerator.newId("mailer_");
+
+    public EmailOutboxDispatcher(EmailOutbox outbox,
+                                 EmailService emailService,
+                                 @Qualifier("mailExecutor") Executor mailExecutor,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${mail.outbox.enabled:true}") boolean enabled,
+                                 @Value("${mail.outbox.batch-size:50}") int batchSize,
+                                 @Value("${mail.outbox.lease:2m}") Duration lease,
+                                 @Value("${mail.outbox.max-attempts:5}") int maxAttempts,
+                                 @Value("${mail.outbox.initial-backoff:30s}") Duration initialBackoff,
+                                 @Value("${mail.outbox.max-backoff:30m}") Duration maxBackoff) {
+        this.outbox = outbox;
+        this.emailService = emailService;
+        this.mailExecutor = mailExecutor;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.lease = lease;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.sent = Counter.builder("mail.outbox.delivery").tag("result", "sent").register(meterRegistry);
+        this.retried = Counter.builder("mail.outbox.delivery").tag("result", "retry").register(meterRegistry);
+        this.failed = Counter.builder("mail.outbox.delivery").tag("result", "failed").register(meterRegistry);
+    }
+
+    /**
+     * Pide un vaciado inmediato sin bloquear al llamador; si ya hay uno pendiente no hace nada.
+     */
+    public void wake() {
+        if (!enabled || !wakePending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            mailExecutor.execute(() -> {
+                wakePending.set(false);
+                drain();
+            });
+        } catch (RejectedExecutionException ex) {
+            wakePending.set(false);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${mail.outbox.poll-interval:5s}", initialDelayString = "${mail.outbox.poll-interval:5s}")
+    public void poll() {
+        wake();
+    }
+
+    /**
+     * Envía lotes mientras haya emails vencidos. Devuelve cuántos se intentaron.
+     */
+    public int drain() {
+        // one drain per node; other nodes skip the rows this one has locked
+        if (!drainLock.tryLock()) {
+            return 0;
+        }
+        int attempted = 0;
+        try {
+            List<OutboxEmail> batch;
+            do {
+                batch = outbox.claim(dispatcherId, batchSize, lease);
+                if (!batch.isEmpty()) {
+                    deliver(batch);
+                    attempted += batch.size();
+                }
+            } while (batch.size() == batchSize);
+        } catch (RuntimeException ex) {
+            // claimed rows become due again when their lease runs out
+            log.error("Email outbox drain failed: {}", ex.getMessage(), ex);
+        } finally {
+            drainLock.unlock();
+        }
+        return attempted;
+    }
+
+    private void deliver(List<OutboxEmail> batch) {
+        Map<OutboxEmail, Exception> failures = emailService.sendBatch(batch);
+        List<OutboxEmail> delivered = new ArrayList<>(batch.size());
+        for (OutboxEmail email : batch) {
+            Exception error = failures.get(email);
+            if (error == null) {
+                delivered.add(email);
+            } else if (email.attempts() >= maxAttempts) {
+                log.error("Giving up on email {} for report {} after {} attempts: {}", email.id(), email.reportRequestId(),
+                        email.attempts(), error.getMessage());
+                outbox.fail(email, dispatcherId, error.getMessage());
+                failed.increment();
+            } else {
+                Duration backoff = backoff(email.attempts());
+                log.warn("Email {} for report {} failed (attempt {}), retrying in {}: {}", email.id(), email.reportRequestId(),
+                        email.attempts(), backoff, error.getMessage());
+                outbox.retryLater(email, dispatcherId, error.getMessage(), Instant.now().plus(backoff));
+                retried.increment();
+            }
+        }
+        outbox.markSent(delivered, dispatcherId);
+        sent.increment(delivered.size());
+        if (!delivered.isEmpty()) {
+            log.info("Sent {} report email(s)", delivered.size());
+        }
+    }
+
+    private Duration backoff(int attempts) {
+        Duration step = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return step.compareTo(maxBackoff) > 0 ? maxBackoff : step;
+    }
+}
@@ -1,9 +1,20 @@
 package org.ide.hack1.service.mail;
 
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Service
 public class EmailService {
 
@@ -24,4 +35,47 @@ public class EmailService {
             throw new RuntimeException("failed to send email: " + ex.getMessage(), ex);
         }
     }
+
+    /**
+     * Envía todos los emails por una misma conexión SMTP y devuelve el error de cada uno que no salió
+     * (vacío si salieron todos). Una dirección inválida solo hace fallar su propio email.
+     */
+    public Map<OutboxEmail, Exception> sendBatch(List<OutboxEmail> emails) {
+        Map<OutboxEmail, Exception> failures = new HashMap<>();
+        // MimeMessage keeps identity equality, so failed messages map back to their email
+        Map<MimeMessage, OutboxEmail> byMessage = new LinkedHashMap<>();
+        for (OutboxEmail email : emails) {
+            try {
+                MimeMessage message = mailSender.createMimeMessage();
+                MimeMessageHelper helper = new MimeMessageHelper(message, StandardCharsets.UTF_8.name());
+                helper.setTo(email.to());
+                helper.setSubject(email.subject());
+                helper.setText(email.body());
+                byMessage.put(message, email);
+            } catch (MessagingException ex) {
+                failures.put(email, ex);
+            }
+        }
+        if (byMessage.isEmpty()) {
+            return failures;
+        }
+        try {
+            // JavaMailSenderImpl connects once and reuses the transport for the whole array
+            mailSender.send(byMessage.keySet().toArray(new MimeMessage[0]));
+        } catch (MailSendException ex) {
+            Map<Object, Exception> failed = ex.getFailedMessages();
+            if (failed.isEmpty()) {
+                byMessage.values().forEach(email -> failures.put(email, ex));
+            } else {
+                failed.forEach((message, cause) -> {
+                    OutboxEmail email = byMessage.get(message);
+                    if (email != null) failures.put(email, cause);
+                });
+            }
+        } catch (MailException ex) {
+            // e.g. authentication: nothing was sent
+            byMessage.values().forEach(email -> failures.put(email, ex));
+        }
+        return failures;
+    }
 }
@@ -0,0 +1,13 @@
+package org.ide.hack1.service.mail;
+
+import org.ide.hack1.util.IdGenerator;
+
+/**
+ * Un email de la tabla email_outbox; {@code attempts} cuenta el intento en curso.
+ */
+public record OutboxEmail(String id, String reportRequestId, String to, String subject, String body, int attempts) {
+
+    public static OutboxEmail forReport(String reportRequestId, String to, String subject, String body) {
+        return new OutboxEmail(IdGenerator.newId("mail_"), reportRequestId, to, subject, body, 0);
+    }
+}
@@ -0,0 +1,250 @@
+package org.ide.hack1.service.report;
+
+import org.ide.hack1.client.githubmodels.GithubModelsClient;
+import org.ide.hack1.dto.summary.SalesAggregatesDTO;
+import org.ide.hack1.entity.ReportRequest;
+import org.ide.hack1.service.mail.OutboxEmail;
+import org.ide.hack1.service.sales.SalesAggregationService;
+import org.ide.hack1.service.sales.SalesRollupService;
+import org.ide.hack1.util.SingleFlight;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.DecimalFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Trabajo de un reporte reclamado: agrega las ventas, pide el resumen al LLM (con respaldo local)
+ * y arma el email. El estado de la fila lo maneja {@link ReportJobWorker}, y el email lo entrega
+ * {@link org.ide.hack1.service.mail.EmailOutboxDispatcher}.
+ * Con muchos reportes en vuelo (hilos virtuales), la consulta y la llamada al LLM tienen su propio
+ * límite de concurrencia para no agotar el pool de conexiones ni la cuota del modelo.
+ * Reportes concurrentes con el mismo (from, to, branch) comparten una sola agregación y llamada al LLM;
+ * cada solicitud conserva su propia fila y su propio email.
+ * El resumen de un periodo ya cerrado se guarda en {@link ReportSummaryStore} con sus agregados y se
+ * reutiliza mientras no cambien las ventas de ese rango. Si el LLM no respondió se guarda el texto de
+ * respaldo: se entrega tal cual, pero cada solicitud vuelve a probar el LLM (sin volver a agregar) y lo reemplaza.
+ */
+@Component
+public class ReportJobProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportJobProcessor.class);
+
+    private final SalesAggregationService salesAggregationService;
+    private final GithubModelsClient githubModelsClient;
+    private final Semaphore dbPermits;
+    private final Semaphore llmPermits;
+    private final SalesRollupService salesRollupService;
+    private final ReportSummaryStore summaryStore;
+    private final boolean storeEnabled;
+    private final SingleFlight<SummaryKey, Summarized> summaries = new SingleFlight<>();
+
+    public ReportJobProcessor(SalesAggregationService salesAggregationService,
+                              GithubModelsClient githubModelsClient,
+                              SalesRollupService salesRollupService,
+                              ReportSummaryStore summaryStore,
+                              @Value("${reports.summary-store.enabled:true}") boolean storeEnabled,
+                              @Value("${reports.queue.db-concurrency:4}") int dbConcurrency,
+                              @Value("${reports.queue.llm-concurrency:8}") int llmConcurrency) {
+        this.salesAggregationService = salesAggregationService;
+        this.salesRollupService = salesRollupService;
+        this.summaryStore = summaryStore;
+        this.storeEnabled = storeEnabled;
+        this.githubModelsClient = githubModelsClient;
+        this.dbPermits = new Semaphore(dbConcurrency, true);
+        this.llmPermits = new Semaphore(llmConcurrency, true);
+    }
+
+    /**
+     * @throws IllegalArgumentException si la solicitud es inválida (no se reintenta)
+     */
+    public ReportSummary buildSummary(ReportRequest rr) {
+        LocalDate fromDate = rr.getFromDate();
+        LocalDate toDate = rr.getToDate();
+        if (fromDate == null || toDate == null) {
+            throw new IllegalArgumentException("from/to dates are required");
+        }
+        // blank and null branch both mean all branches in SalesAggregationService
+        String branch = rr.getBranch() == null || rr.getBranch().isBlank() ? null : rr.getBranch().trim();
+        return summaries.execute(new SummaryKey(fromDate, toDate, branch), () -> summarize(rr.getId(), fromDate, toDate, branch))
+                .summary();
+    }
+
+    /**
+     * Qué dejó en el store el precálculo de una vista.
+     */
+    public enum Outcome {
+        /** ya había un resumen del LLM para la versión de datos actual */
+        REUSED,
+        /** se guardó un resumen nuevo del LLM */
+        COMPUTED,
+        /** el LLM no respondió: quedan los agregados y el texto de respaldo, marcados para reemplazarlos */
+        FALLBACK
+    }
+
+    /**
+     * Calcula (o reutiliza) el resumen de un rango sin solicitud asociada, dejándolo en el store si es
+     * un periodo cerrado; lo usa {@link ReportPrecomputeScheduler}.
+     */
+    public Outcome precompute(LocalDate fromDate, LocalDate toDate, String branch) {
+        return summaries.execute(new SummaryKey(fromDate, toDate, branch), () -> summarize("precompute", fromDate, toDate, branch))
+                .outcome();
+    }
+
+    private Summarized summarize(String requestId, LocalDate fromDate, LocalDate toDate, String branch) {
+        // a period that includes today still receives sales: not worth storing
+        if (!storeEnabled || !toDate.isBefore(LocalDate.now(ZoneOffset.UTC))) {
+            Computed computed = computeSummary(requestId, aggregate(fromDate, toDate, branch), fromDate, toDate);
+            return new Summarized(new ReportSummary(computed.text(), ReportRequest.SummarySource.COMPUTED),
+                    computed.fromLlm() ? Outcome.COMPUTED : Outcome.FALLBACK);
+        }
+        // read before computing: a sale landing meanwhile leaves a stale version behind, never a stale summary
+        String dataVersion = salesRollupService.dataVersion(fromDate, toDate, branch);
+        Optional<ReportSummaryStore.StoredSummary> stored = summaryStore.find(fromDate, toDate, branch, dataVersion);
+        if (stored.isPresent() && stored.get().fromLlm()) {
+            log.info("Reusing stored summary for request {} ({} to {}, data version {})", requestId, fromDate, toDate, dataVersion);
+            return new Summarized(new ReportSummary(stored.get().text(), ReportRequest.SummarySource.STORED), Outcome.REUSED);
+        }
+        // a stored fallback still has its aggregates: only the LLM is tried again
+        SalesAggregatesDTO agg = stored.map(ReportSummaryStore.StoredSummary::aggregates)
+                .orElseGet(() -> aggregate(fromDate, toDate, branch));
+        Computed computed = computeSummary(requestId, agg, fromDate, toDate);
+        if (computed.fromLlm()) {
+            summaryStore.save(fromDate, toDate, branch, dataVersion, computed.text(), true, agg);
+            return new Summarized(new ReportSummary(computed.text(), ReportRequest.SummarySource.COMPUTED), Outcome.COMPUTED);
+        }
+        if (stored.isPresent()) {
+            log.info("Serving stored fallback summary for request {} ({} to {}): LLM still unavailable", requestId, fromDate, toDate);
+            return new Summarized(new ReportSummary(stored.get().text(), ReportRequest.SummarySource.STORED), Outcome.FALLBACK);
+        }
+        summaryStore.save(fromDate, toDate, branch, dataVersion, computed.text(), false, agg);
+        return new Summarized(new ReportSummary(computed.text(), ReportRequest.SummarySource.COMPUTED), Outcome.FALLBACK);
+    }
+
+    private SalesAggregatesDTO aggregate(LocalDate fromDate, LocalDate toDate, String branch) {
+        // convert LocalDate to Instant range (start of day to end of day UTC)
+        Instant from = fromDate.atStartOfDay().toInstant(ZoneOffset.UTC);
+        Instant to = toDate.plusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC).minusSeconds(1);
+
+        SalesAggregatesDTO agg = withPermit(dbPermits, () -> salesAggregationService.calculateAggregates(from, to, branch));
+
+        if (agg == null) {
+            throw new IllegalStateException("failed to calculate aggregates");
+        }
+        return agg;
+    }
+
+    private Computed computeSummary(String requestId, SalesAggregatesDTO agg, LocalDate fromDate, LocalDate toDate) {
+        // Try to generate summary via LLM if configured
+        String summary = null;
+        try {
+            String llm = withPermit(llmPermits, () -> githubModelsClient.generateSummary(agg, fromDate, toDate));
+            if (isValidSummary(llm, agg)) {
+                summary = llm;
+                log.info("Using LLM-generated summary for request {}", requestId);
+            } else if (llm != null) {
+                log.warn("LLM returned summary but did not pass validation for request {}. Falling back.", requestId);
+            }
+        } catch (Exception e) {
+            log.error("LLM call failed for request {}: {}", requestId, e.getMessage());
+        }
+
+        if (summary == null) {
+            return new Computed(buildSimpleSummary(agg), false);
+        }
+        return new Computed(summary, true);
+    }
+
+    /**
+     * El email del reporte para la outbox, o vacío si la solicitud no tiene un email válido.
+     */
+    public Optional<OutboxEmail> reportEmail(ReportRequest rr, String summary) {
+        String emailTo = rr.getEmailTo();
+        if (emailTo == null || emailTo.isBlank() || !emailTo.contains("@")) {
+            log.warn("Invalid or missing email for report {}: {}", rr.getId(), emailTo);
+            return Optional.empty();
+        }
+
+        String subject = String.format("Reporte Semanal Oreo - %s a %s", rr.getFromDate(), rr.getToDate());
+        String body = "Resumen:\n\n" + summary + "\n\nGracias.";
+        return Optional.of(OutboxEmail.forReport(rr.getId(), emailTo, subject, body));
+    }
+
+    private record SummaryKey(LocalDate from, LocalDate to, String branch) {
+    }
+
+    private record Computed(String text, boolean fromLlm) {
+    }
+
+    private record Summarized(ReportSummary summary, Outcome outcome) {
+    }
+
+    private static <T> T withPermit(Semaphore permits, Supplier<T> call) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted waiting for a report slot", ex);
+        }
+        try {
+            return call.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean isValidSummary(String text, SalesAggregatesDTO agg) {
+        if (text == null || text.isBlank()) return false;
+        // word count <= 120
+        String[] words = text.trim().split("\\s+");
+        if (words.length > 120) return false;
+
+        // Must mention at least one of: totalUnits, topSku, topBranch, totalRevenue
+        try {
+            if (agg.getTopSku() != null && !agg.getTopSku().isBlank() && text.contains(agg.getTopSku())) return true;
+            if (agg.getTopBranch() != null && !agg.getTopBranch().isBlank() && text.contains(agg.getTopBranch())) return true;
+            // check totalUnits numeric mention
+            if (text.contains(String.valueOf(agg.getTotalUnits()))) return true;
+            // check totalRevenue formatted with 2 decimals
+            DecimalFormat df = new DecimalFormat("0.00");
+            if (text.contains(df.format(agg.getTotalRevenue()))) return true;
+        } catch (Exception e) {
+            // ignore and fallback
+        }
+        return false;
+    }
+
+    private String buildSimpleSummary(SalesAggregatesDTO agg) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Se vendieron %d unidades en el periodo.", agg.getTotalUnits()));
+        sb.append(" ");
+        sb.append(String.format("Ingresos totales: %.2f.", agg.getTotalRevenue()));
+        if (agg.getTopSku() != null) {
+            sb.append(" ");
+            sb.append(String.format("SKU más vendido: %s.", agg.getTopSku()));
+        }
+        if (agg.getTopBranch() != null) {
+            sb.append(" ");
+            sb.append(String.format("Sucursal destacada: %s.", agg.getTopBranch()));
+        }
+        // ensure <= 120 words roughly by truncating if needed
+        String full = sb.toString();
+        String[] words = full.split("\\s+");
+        if (words.length > 120) {
+            StringBuilder t = new StringBuilder();
+            for (int i = 0; i < 120; i++) {
+                t.append(words[i]).append(" ");
+            }
+            t.append("...");
+            return t.toString().trim();
+        }
+        return full;
+    }
+}
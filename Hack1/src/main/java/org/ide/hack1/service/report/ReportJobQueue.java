@@ -0,0 +1,109 @@
+package org.ide.hack1.service.report;
+
+import org.ide.hack1.service.mail.EmailOutbox;
+import org.ide.hack1.service.mail.OutboxEmail;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Cola durable sobre report_requests: una fila PROCESSING sin lease (o con el lease vencido) está pendiente.
+ * Los workers la reclaman con FOR UPDATE SKIP LOCKED, así varios nodos reparten el trabajo sin tomar
+ * la misma fila, y cada transición posterior exige seguir siendo el dueño del lease.
+ */
+@Component
+public class ReportJobQueue {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EmailOutbox emailOutbox;
+
+    public ReportJobQueue(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, EmailOutbox emailOutbox) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.emailOutbox = emailOutbox;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Reclama hasta {@code limit} reportes pendientes para {@code owner} durante {@code lease}
+     * y suma un intento a cada uno. Las filas bloqueadas por otro worker se saltan, no se esperan.
+     */
+    public List<String> claim(String owner, int limit, Duration lease, int maxAttempts) {
+        Instant now = Instant.now();
+        Timestamp expires = Timestamp.from(now.plus(lease));
+        return transactionTemplate.execute(status -> {
+            List<String> ids = jdbcTemplate.queryForList(
+                    "select id from report_requests where status = 'PROCESSING' and attempts < ? "
+                            + "and (lease_expires_at is null or lease_expires_at < ?) "
+                            + "order by requested_at limit ? for update skip locked",
+                    String.class, maxAttempts, Timestamp.from(now), limit);
+            if (!ids.isEmpty()) {
+                jdbcTemplate.batchUpdate(
+                        "update report_requests set lease_owner = ?, lease_expires_at = ?, attempts = attempts + 1 where id = ?",
+                        ids, ids.size(), (ps, id) -> {
+                            ps.setString(1, owner);
+                            ps.setTimestamp(2, expires);
+                            ps.setString(3, id);
+                        });
+            }
+            return ids;
+        });
+    }
+
+    /**
+     * Marca DONE y, en la misma transacción, deja {@code email} (si no es null) en la outbox.
+     * Devuelve false, sin encolar nada, si el lease ya no es de {@code owner} (venció y otro worker lo tomó).
+     */
+    public boolean complete(String id, String owner, ReportSummary summary, OutboxEmail email) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            int updated = jdbcTemplate.update(
+                    "update report_requests set status = 'DONE', summary_text = ?, summary_source = ?, error_message = null, "
+                            + "completed_at = ?, lease_owner = null, lease_expires_at = null "
+                            + "where id = ? and lease_owner = ? and status = 'PROCESSING'",
+                    summary.text(), summary.source().name(), Timestamp.from(Instant.now()), id, owner);
+            if (updated != 1) {
+                return false;
+            }
+            if (email != null) {
+                emailOutbox.enqueue(email);
+            }
+            return true;
+        }));
+    }
+
+    public boolean fail(String id, String owner, String error) {
+        return jdbcTemplate.update(
+                "update report_requests set status = 'FAILED', error_message = ?, completed_at = ?, "
+                        + "lease_owner = null, lease_expires_at = null where id = ? and lease_owner = ? and status = 'PROCESSING'",
+                error, Timestamp.from(Instant.now()), id, owner) == 1;
+    }
+
+    /**
+     * Suelta el lease para reintentar: la fila vuelve a ser reclamable a partir de {@code retryAt}.
+     */
+    public boolean retryLater(String id, String owner, String error, Instant retryAt) {
+        return jdbcTemplate.update(
+                "update report_requests set error_message = ?, lease_owner = null, lease_expires_at = ? "
+                        + "where id = ? and lease_owner = ? and status = 'PROCESSING'",
+                error, Timestamp.from(retryAt), id, owner) == 1;
+    }
+
+    /**
+     * Marca FAILED los reportes cuyo último intento murió con el lease tomado (p. ej. el nodo se reinició)
+     * y ya no tienen intentos disponibles.
+     */
+    public int failExhausted(int maxAttempts) {
+        return jdbcTemplate.update(
+                "update report_requests set status = 'FAILED', error_message = ?, completed_at = ?, "
+                        + "lease_owner = null, lease_expires_at = null "
+                        + "where status = 'PROCESSING' and attempts >= ? and lease_expires_at < ?",
+                "abandoned after " + maxAttempts + " attempts", Timestamp.from(Instant.now()), maxAttempts,
+                Timestamp.from(Instant.now()));
+    }
+}
@@ -0,0 +1,181 @@
+package org.ide.hack1.service.report;
+
+import org.ide.hack1.config.ReadWriteRoutingDataSource;
+import org.ide.hack1.entity.ReportRequest;
+import org.ide.hack1.event.ReportFinishedEvent;
+import org.ide.hack1.repository.ReportRequestRepository;
+import org.ide.hack1.service.mail.EmailOutboxDispatcher;
+import org.ide.hack1.service.mail.OutboxEmail;
+import org.ide.hack1.util.IdGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Procesa los reportes encolados en report_requests. Sondea la tabla cada {@code reports.queue.poll-interval}
+ * y además se despierta al crear una solicitud; nunca reclama más filas que hilos libres tiene.
+ * Un reinicio no pierde nada: lo pendiente sigue en la tabla y un lease vencido vuelve a la cola.
+ */
+@Service
+public class ReportJobWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportJobWorker.class);
+
+    private final ReportJobQueue queue;
+    private final ReportJobProcessor processor;
+    private final ReportRequestRepository reportRequestRepository;
+    private final EmailOutboxDispatcher emailDispatcher;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TaskExecutor reportExecutor;
+    private final Executor wakeExecutor;
+    private final Duration lease;
+    private final int maxAttempts;
+    private final Duration retryDelay;
+    private final Semaphore slots;
+    private final ReentrantLock pollLock = new ReentrantLock();
+    private final AtomicBoolean wakePending = new AtomicBoolean();
+    private final String workerId = IdGenerator.newId("worker_");
+
+    public ReportJobWorker(ReportJobQueue queue,
+                           ReportJobProcessor processor,
+                           ReportRequestRepository reportRequestRepository,
+                           EmailOutboxDispatcher emailDispatcher,
+                           ApplicationEventPublisher eventPublisher,
+                           @Qualifier("reportExecutor") TaskExecutor reportExecutor,
+                           @Qualifier("taskExecutor") Executor wakeExecutor,
+                           @Value("${reports.queue.concurrency:4}") int concurrency,
+                           @Value("${reports.queue.lease:5m}") Duration lease,
+                           @Value("${reports.queue.max-attempts:3}") int maxAttempts,
+                           @Value("${reports.queue.retry-delay:30s}") Duration retryDelay) {
+        this.queue = queue;
+        this.processor = processor;
+        this.reportRequestRepository = reportRequestRepository;
+        this.emailDispatcher = emailDispatcher;
+        this.eventPublisher = eventPublisher;
+        this.reportExecutor = reportExecutor;
+        this.wakeExecutor = wakeExecutor;
+        this.lease = lease;
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = retryDelay;
+        this.slots = new Semaphore(Math.max(0, concurrency));
+    }
+
+    /**
+     * Pide un sondeo inmediato sin bloquear al llamador; si ya hay uno pendiente o el executor está
+     * lleno no hace nada, el sondeo periódico lo recoge.
+     */
+    public void wake() {
+        if (!wakePending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            wakeExecutor.execute(() -> {
+                wakePending.set(false);
+                poll();
+            });
+        } catch (RejectedExecutionException ex) {
+            wakePending.set(false);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${reports.queue.poll-interval:5s}", initialDelayString = "${reports.queue.poll-interval:5s}")
+    public void poll() {
+        // wake() and the schedule may race; one poll at a time per node is enough
+        if (!pollLock.tryLock()) {
+            return;
+        }
+        try {
+            int expired = queue.failExhausted(maxAttempts);
+            if (expired > 0) {
+                log.warn("Marked {} report(s) FAILED after {} attempts", expired, maxAttempts);
+            }
+            int free = slots.availablePermits();
+            if (free == 0) {
+                return;
+            }
+            List<String> ids = queue.claim(workerId, free, lease, maxAttempts);
+            for (String id : ids) {
+                slots.acquireUninterruptibly();
+                try {
+                    reportExecutor.execute(() -> run(id));
+                } catch (TaskRejectedException ex) {
+                    // the lease expires and the job is claimed again
+                    slots.release();
+                    log.warn("Report executor rejected job {}", id);
+                }
+            }
+        } catch (RuntimeException ex) {
+            log.error("Report queue poll failed: {}", ex.getMessage(), ex);
+        } finally {
+            pollLock.unlock();
+        }
+    }
+
+    void run(String id) {
+        try {
+            process(id);
+        } catch (RuntimeException ex) {
+            log.error("Unexpected error on report job {}: {}", id, ex.getMessage(), ex);
+        } finally {
+            slots.release();
+            wake();
+        }
+    }
+
+    private void process(String id) {
+        Optional<ReportRequest> found = ReadWriteRoutingDataSource.onPrimary(() -> reportRequestRepository.findById(id));
+        if (found.isEmpty()) {
+            return;
+        }
+        ReportRequest rr = found.get();
+        log.info("Processing report request {} for {} - {} to {} (attempt {})", id, rr.getRequestedBy(),
+                rr.getFromDate(), rr.getToDate(), rr.getAttempts());
+
+        ReportSummary summary;
+        try {
+            summary = processor.buildSummary(rr);
+        } catch (IllegalArgumentException ex) {
+            if (queue.fail(id, workerId, ex.getMessage())) {
+                eventPublisher.publishEvent(new ReportFinishedEvent(id));
+            }
+            return;
+        } catch (Exception ex) {
+            log.error("Error processing report {}: {}", id, ex.getMessage(), ex);
+            if (rr.getAttempts() >= maxAttempts) {
+                if (queue.fail(id, workerId, ex.getMessage())) {
+                    eventPublisher.publishEvent(new ReportFinishedEvent(id));
+                }
+            } else {
+                queue.retryLater(id, workerId, ex.getMessage(), Instant.now().plus(retryDelay.multipliedBy(rr.getAttempts())));
+            }
+            return;
+        }
+
+        // fenced on the lease: if it expired and another worker took the job, only that worker's email is queued
+        OutboxEmail email = processor.reportEmail(rr, summary.text()).orElse(null);
+        if (!queue.complete(id, workerId, summary, email)) {
+            log.warn("Lost the lease on report {} before completing it", id);
+            return;
+        }
+        eventPublisher.publishEvent(new ReportFinishedEvent(id));
+        if (email != null) {
+            emailDispatcher.wake();
+        }
+    }
+}
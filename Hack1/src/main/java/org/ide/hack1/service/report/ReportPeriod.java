@@ -0,0 +1,17 @@
+package org.ide.hack1.service.report;
+
+import java.time.LocalDate;
+
+/**
+ * Rango de días (UTC, inclusivo) de un reporte.
+ */
+public record ReportPeriod(LocalDate from, LocalDate to) {
+
+    /**
+     * Rango por defecto de POST /sales/summary/weekly: los últimos 7 días completos, terminando ayer.
+     */
+    public static ReportPeriod lastSevenDays(LocalDate today) {
+        LocalDate end = today.minusDays(1);
+        return new ReportPeriod(end.minusDays(6), end);
+    }
+}
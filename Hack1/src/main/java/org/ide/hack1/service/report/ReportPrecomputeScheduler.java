@@ -0,0 +1,135 @@
+package org.ide.hack1.service.report;
+
+import org.ide.hack1.service.sales.SalesRollupService;
+import org.ide.hack1.util.IdGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Prepara fuera de hora pico el resumen del rango por defecto de POST /sales/summary/weekly
+ * ({@link ReportPeriod#lastSevenDays}) para cada sucursal con ventas y para todas las sucursales, así las
+ * solicitudes del lunes salen del {@link ReportSummaryStore} sin agregar ni llamar al LLM. Si el LLM no
+ * responde, la vista queda guardada con sus agregados y el texto de respaldo: el lunes no se vuelve a agregar.
+ * Corre en un solo nodo a la vez ({@link SchedulerLock}), con {@code reports.precompute.concurrency}
+ * resúmenes en paralelo, y no empieza ninguno después de {@code reports.precompute.window}.
+ * No corre con {@code reports.summary-store.enabled=false}: sin store los resúmenes se descartarían.
+ */
+@Component
+public class ReportPrecomputeScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportPrecomputeScheduler.class);
+    static final String LOCK_NAME = "report-precompute";
+
+    private final ReportJobProcessor processor;
+    private final SalesRollupService salesRollupService;
+    private final SchedulerLock schedulerLock;
+    private final Executor precomputeExecutor;
+    private final boolean enabled;
+    private final boolean storeEnabled;
+    private final Duration window;
+    private final String nodeId = IdGenerator.newId("precompute_");
+
+    public ReportPrecomputeScheduler(ReportJobProcessor processor,
+                                     SalesRollupService salesRollupService,
+                                     SchedulerLock schedulerLock,
+                                     @Qualifier("precomputeExecutor") Executor precomputeExecutor,
+                                     @Value("${reports.precompute.enabled:true}") boolean enabled,
+                                     @Value("${reports.summary-store.enabled:true}") boolean storeEnabled,
+                                     @Value("${reports.precompute.window:3h}") Duration window) {
+        this.processor = processor;
+        this.salesRollupService = salesRollupService;
+        this.schedulerLock = schedulerLock;
+        this.precomputeExecutor = precomputeExecutor;
+        this.enabled = enabled;
+        this.storeEnabled = storeEnabled;
+        this.window = window;
+    }
+
+    /**
+     * {@code fallback}: vistas guardadas solo con los agregados y el texto de respaldo porque el LLM no respondió;
+     * {@code skipped}: vistas que no empezaron antes de que terminara la ventana.
+     */
+    public record Result(boolean ran, int computed, int reused, int fallback, int skipped, int failed) {
+    }
+
+    @Scheduled(cron = "${reports.precompute.cron:0 0 3 * * *}", zone = "${reports.precompute.zone:UTC}")
+    public void runScheduled() {
+        // the run finishes on precomputeExecutor; the shared scheduler thread returns right away
+        if (enabled) {
+            precompute(LocalDate.now(ZoneOffset.UTC));
+        }
+    }
+
+    /**
+     * Precalcula el rango por defecto visto desde {@code today} sin bloquear al llamador; el futuro se
+     * completa al terminar la corrida. Si otro nodo tiene el lock, o no hay store, no hace nada.
+     */
+    public CompletableFuture<Result> precompute(LocalDate today) {
+        if (!storeEnabled) {
+            log.info("Report precompute skipped: reports.summary-store.enabled is false");
+            return CompletableFuture.completedFuture(new Result(false, 0, 0, 0, 0, 0));
+        }
+        if (!schedulerLock.tryLock(LOCK_NAME, nodeId, window)) {
+            log.info("Report precompute already running on another node");
+            return CompletableFuture.completedFuture(new Result(false, 0, 0, 0, 0, 0));
+        }
+        try {
+            ReportPeriod period = ReportPeriod.lastSevenDays(today);
+            List<String> branches = new ArrayList<>();
+            // null = the all-branches view
+            branches.add(null);
+            branches.addAll(salesRollupService.branchesWithSales(period.from(), period.to()));
+            log.info("Precomputing summaries for {} to {}: {} branch view(s)", period.from(), period.to(), branches.size());
+
+            long deadline = System.nanoTime() + window.toNanos();
+            AtomicInteger computed = new AtomicInteger();
+            AtomicInteger reused = new AtomicInteger();
+            AtomicInteger fallback = new AtomicInteger();
+            AtomicInteger skipped = new AtomicInteger();
+            AtomicInteger failed = new AtomicInteger();
+            List<CompletableFuture<Void>> runs = new ArrayList<>(branches.size());
+            for (String branch : branches) {
+                runs.add(CompletableFuture.runAsync(() -> {
+                    // past the window the rest waits for the reports themselves
+                    if (System.nanoTime() >= deadline) {
+                        skipped.incrementAndGet();
+                        return;
+                    }
+                    try {
+                        switch (processor.precompute(period.from(), period.to(), branch)) {
+                            case REUSED -> reused.incrementAndGet();
+                            case COMPUTED -> computed.incrementAndGet();
+                            case FALLBACK -> fallback.incrementAndGet();
+                        }
+                    } catch (RuntimeException ex) {
+                        failed.incrementAndGet();
+                        log.warn("Precompute failed for branch {}: {}", branch != null ? branch : "(all)", ex.getMessage());
+                    }
+                }, precomputeExecutor));
+            }
+            return CompletableFuture.allOf(runs.toArray(new CompletableFuture[0]))
+                    .handle((ignored, ex) -> {
+                        schedulerLock.unlock(LOCK_NAME, nodeId);
+                        Result result = new Result(true, computed.get(), reused.get(), fallback.get(), skipped.get(), failed.get());
+                        log.info("Report precompute finished: {}", result);
+                        return result;
+                    });
+        } catch (RuntimeException ex) {
+            schedulerLock.unlock(LOCK_NAME, nodeId);
+            throw ex;
+        }
+    }
+}
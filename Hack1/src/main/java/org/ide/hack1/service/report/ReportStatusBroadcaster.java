@@ -0,0 +1,244 @@
+package org.ide.hack1.service.report;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.ide.hack1.config.ReadWriteRoutingDataSource;
+import org.ide.hack1.dto.summary.SummaryResponseDTO;
+import org.ide.hack1.entity.ReportRequest;
+import org.ide.hack1.exception.ServiceUnavailableException;
+import org.ide.hack1.repository.ReportRequestRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Suscriptores (SSE y long-poll) esperando que un reporte deje PROCESSING. Ninguno ocupa un hilo del
+ * servlet mientras espera: son requests asíncronos que se completan al publicar el resultado.
+ * Se avisa al terminar un reporte en este nodo ({@link #reportFinished}); un barrido periódico con una
+ * sola consulta para todos los ids observados cubre los reportes terminados en otros nodos.
+ */
+@Component
+public class ReportStatusBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportStatusBroadcaster.class);
+    private static final int SWEEP_CHUNK = 500;
+
+    private final ReportStatusService statusService;
+    private final ReportRequestRepository reportRequestRepository;
+    private final Executor deliveryExecutor;
+    private final Duration streamTimeout;
+    private final int maxSubscribers;
+    private final ConcurrentHashMap<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final AtomicBoolean sweepRunning = new AtomicBoolean();
+    private final AtomicBoolean heartbeatRunning = new AtomicBoolean();
+
+    public ReportStatusBroadcaster(ReportStatusService statusService,
+                                   ReportRequestRepository reportRequestRepository,
+                                   @Qualifier("taskExecutor") Executor deliveryExecutor,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${reports.events.stream-timeout:10m}") Duration streamTimeout,
+                                   @Value("${reports.events.max-subscribers:10000}") int maxSubscribers) {
+        this.statusService = statusService;
+        this.reportRequestRepository = reportRequestRepository;
+        this.deliveryExecutor = deliveryExecutor;
+        this.streamTimeout = streamTimeout;
+        this.maxSubscribers = maxSubscribers;
+        Gauge.builder("reports.events.subscribers", subscriberCount, AtomicInteger::get).register(meterRegistry);
+    }
+
+    private interface Subscriber {
+        void deliver(SummaryResponseDTO report);
+
+        default void heartbeat() {
+        }
+    }
+
+    /**
+     * Stream SSE: un evento "status" con el estado actual y otro con el final, tras el cual se cierra.
+     */
+    public SseEmitter stream(ReportRequest rr) {
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        SummaryResponseDTO current = statusService.toDto(rr);
+        if (ReportStatusService.isFinished(rr)) {
+            sendFinal(emitter, current);
+            return emitter;
+        }
+        Subscriber subscriber = new Subscriber() {
+            @Override
+            public void deliver(SummaryResponseDTO report) {
+                sendFinal(emitter, report);
+            }
+
+            @Override
+            public void heartbeat() {
+                try {
+                    // keeps proxies from closing an idle stream and finds clients that went away
+                    emitter.send(SseEmitter.event().comment("keepalive"));
+                } catch (IOException | IllegalStateException ex) {
+                    emitter.completeWithError(ex);
+                }
+            }
+        };
+        register(rr.getId(), subscriber);
+        emitter.onCompletion(() -> unregister(rr.getId(), subscriber));
+        emitter.onError(ex -> unregister(rr.getId(), subscriber));
+        emitter.onTimeout(emitter::complete);
+        if (send(emitter, current)) {
+            recheck(rr.getId());
+        }
+        return emitter;
+    }
+
+    /**
+     * Long-poll: responde en cuanto el reporte termina, o con el estado actual al cumplirse {@code wait}.
+     */
+    public DeferredResult<SummaryResponseDTO> awaitFinished(ReportRequest rr, Duration wait) {
+        SummaryResponseDTO current = statusService.toDto(rr);
+        DeferredResult<SummaryResponseDTO> result = new DeferredResult<>(wait.toMillis(), () -> current);
+        // a zero async timeout would mean no timeout at all
+        if (ReportStatusService.isFinished(rr) || wait.isZero()) {
+            result.setResult(current);
+            return result;
+        }
+        Subscriber subscriber = result::setResult;
+        register(rr.getId(), subscriber);
+        result.onCompletion(() -> unregister(rr.getId(), subscriber));
+        recheck(rr.getId());
+        return result;
+    }
+
+    /**
+     * Avisa que el reporte terminó en este nodo; la entrega corre fuera del hilo que llama.
+     */
+    public void reportFinished(String id) {
+        if (!subscribers.containsKey(id)) {
+            return;
+        }
+        try {
+            deliveryExecutor.execute(() -> publishIfFinished(List.of(id)));
+        } catch (RejectedExecutionException ex) {
+            // the periodic sweep delivers it
+            log.warn("Report status delivery rejected for {}", id);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${reports.events.sweep-interval:5s}", initialDelayString = "${reports.events.sweep-interval:5s}")
+    public void scheduleSweep() {
+        offload(sweepRunning, this::sweep, "sweep");
+    }
+
+    @Scheduled(fixedDelayString = "${reports.events.heartbeat:20s}", initialDelayString = "${reports.events.heartbeat:20s}")
+    public void scheduleHeartbeat() {
+        offload(heartbeatRunning, this::heartbeat, "heartbeat");
+    }
+
+    // writes to a stalled client may block, so the passes run on deliveryExecutor and never on the shared
+    // scheduler thread; a pass still running when the next one is due is not stacked
+    private void offload(AtomicBoolean running, Runnable pass, String name) {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            deliveryExecutor.execute(() -> {
+                try {
+                    pass.run();
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            running.set(false);
+            log.warn("Report status {} rejected, retrying on the next tick", name);
+        }
+    }
+
+    void sweep() {
+        List<String> watched = new ArrayList<>(subscribers.keySet());
+        for (int i = 0; i < watched.size(); i += SWEEP_CHUNK) {
+            try {
+                publishIfFinished(watched.subList(i, Math.min(watched.size(), i + SWEEP_CHUNK)));
+            } catch (RuntimeException ex) {
+                log.error("Report status sweep failed: {}", ex.getMessage(), ex);
+                return;
+            }
+        }
+    }
+
+    void heartbeat() {
+        subscribers.values().forEach(set -> set.forEach(Subscriber::heartbeat));
+    }
+
+    private void recheck(String id) {
+        // the report may have finished between loading it and registering
+        reportFinished(id);
+    }
+
+    private void publishIfFinished(List<String> ids) {
+        // the worker just wrote the row on the primary; a lagging replica would still say PROCESSING
+        List<ReportRequest> reports = ReadWriteRoutingDataSource.onPrimary(() -> reportRequestRepository.findAllById(ids));
+        for (ReportRequest rr : reports) {
+            if (!ReportStatusService.isFinished(rr)) continue;
+            Set<Subscriber> waiting = subscribers.remove(rr.getId());
+            if (waiting == null) continue;
+            subscriberCount.addAndGet(-waiting.size());
+            SummaryResponseDTO report = statusService.toDto(rr);
+            waiting.forEach(subscriber -> subscriber.deliver(report));
+        }
+    }
+
+    private void register(String id, Subscriber subscriber) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new ServiceUnavailableException("too many report status subscribers, poll GET /reports/{id} instead");
+        }
+        // atomic with the remove in publishIfFinished, so a subscriber never lands in a set already delivered
+        subscribers.compute(id, (k, set) -> {
+            Set<Subscriber> waiting = set != null ? set : ConcurrentHashMap.newKeySet();
+            waiting.add(subscriber);
+            return waiting;
+        });
+    }
+
+    private void unregister(String id, Subscriber subscriber) {
+        subscribers.computeIfPresent(id, (k, set) -> {
+            if (set.remove(subscriber)) {
+                subscriberCount.decrementAndGet();
+            }
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private static boolean send(SseEmitter emitter, SummaryResponseDTO report) {
+        try {
+            emitter.send(SseEmitter.event().name("status").id(report.getStatus()).data(report, MediaType.APPLICATION_JSON));
+            return true;
+        } catch (IOException | IllegalStateException ex) {
+            emitter.completeWithError(ex);
+            return false;
+        }
+    }
+
+    private static void sendFinal(SseEmitter emitter, SummaryResponseDTO report) {
+        if (send(emitter, report)) {
+            emitter.complete();
+        }
+    }
+}
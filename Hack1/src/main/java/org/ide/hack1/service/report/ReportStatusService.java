@@ -0,0 +1,53 @@
+package org.ide.hack1.service.report;
+
+import org.ide.hack1.dto.summary.SummaryResponseDTO;
+import org.ide.hack1.entity.ReportRequest;
+import org.ide.hack1.exception.ForbiddenException;
+import org.ide.hack1.exception.NotFoundException;
+import org.ide.hack1.repository.ReportRequestRepository;
+import org.ide.hack1.service.mail.EmailOutbox;
+import org.springframework.stereotype.Service;
+
+/**
+ * Lectura del estado de un reporte para GET /reports/{id} y sus variantes push.
+ */
+@Service
+public class ReportStatusService {
+
+    private final ReportRequestRepository reportRequestRepository;
+    private final EmailOutbox emailOutbox;
+
+    public ReportStatusService(ReportRequestRepository reportRequestRepository, EmailOutbox emailOutbox) {
+        this.reportRequestRepository = reportRequestRepository;
+        this.emailOutbox = emailOutbox;
+    }
+
+    /**
+     * @throws NotFoundException si no existe
+     * @throws ForbiddenException si un usuario BRANCH pide un reporte de otra sucursal
+     */
+    public ReportRequest findAuthorized(String id, String role, String userBranch) {
+        ReportRequest rr = reportRequestRepository.findById(id).orElseThrow(() -> new NotFoundException("report request not found"));
+        if ("BRANCH".equals(role) && rr.getBranch() != null && !rr.getBranch().equals(userBranch)) {
+            throw new ForbiddenException("branch users can only view their own reports");
+        }
+        return rr;
+    }
+
+    public SummaryResponseDTO toDto(ReportRequest rr) {
+        return SummaryResponseDTO.builder()
+                .requestId(rr.getId())
+                .status(rr.getStatus() != null ? rr.getStatus().name() : null)
+                .message(rr.getErrorMessage())
+                .estimatedTime(null)
+                .requestedAt(rr.getRequestedAt())
+                .summaryText(rr.getSummaryText())
+                .summarySource(rr.getSummarySource() != null ? rr.getSummarySource().name() : null)
+                .emailStatus(emailOutbox.statusForReport(rr.getId()).map(Enum::name).orElse(null))
+                .build();
+    }
+
+    public static boolean isFinished(ReportRequest rr) {
+        return rr.getStatus() != null && rr.getStatus() != ReportRequest.Status.PROCESSING;
+    }
+}
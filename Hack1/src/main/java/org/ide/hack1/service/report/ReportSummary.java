@@ -0,0 +1,9 @@
+package org.ide.hack1.service.report;
+
+import org.ide.hack1.entity.ReportRequest;
+
+/**
+ * Texto del resumen de un reporte y de dónde salió.
+ */
+public record ReportSummary(String text, ReportRequest.SummarySource source) {
+}
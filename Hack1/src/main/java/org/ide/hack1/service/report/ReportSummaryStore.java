@@ -0,0 +1,101 @@
+package org.ide.hack1.service.report;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.ide.hack1.dto.summary.SalesAggregatesDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Resúmenes ya generados de periodos cerrados (tabla report_summaries), uno por (from, to, branch), con
+ * los agregados de los que salieron. Solo se reutilizan si la versión de datos guardada coincide con la
+ * actual del rango. Un resumen de respaldo (el LLM no respondió) queda marcado para reemplazarlo después.
+ */
+@Component
+public class ReportSummaryStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportSummaryStore.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public ReportSummaryStore(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @param fromLlm    false si {@code text} es el resumen local de respaldo
+     * @param aggregates null en filas guardadas antes de que se guardaran los agregados
+     */
+    public record StoredSummary(String text, boolean fromLlm, SalesAggregatesDTO aggregates) {
+    }
+
+    public Optional<StoredSummary> find(LocalDate from, LocalDate to, String branch, String dataVersion) {
+        List<StoredSummary> found = jdbcTemplate.query(
+                "select summary_text, llm_summary, aggregates_json from report_summaries "
+                        + "where from_date = ? and to_date = ? and branch_key = ? and data_version = ?",
+                (rs, i) -> new StoredSummary(rs.getString(1), rs.getBoolean(2), readAggregates(rs.getString(3))),
+                from, to, branchKey(branch), dataVersion);
+        return found.stream().findFirst();
+    }
+
+    /**
+     * Guarda o reemplaza el resumen del rango; {@code dataVersion} debe haberse leído antes de calcularlo,
+     * así una venta que llegue mientras tanto deja la entrada vieja y se recalcula en la próxima solicitud.
+     */
+    public void save(LocalDate from, LocalDate to, String branch, String dataVersion, String summary, boolean fromLlm,
+                     SalesAggregatesDTO aggregates) {
+        Timestamp now = Timestamp.from(Instant.now());
+        String key = branchKey(branch);
+        String json = writeAggregates(aggregates);
+        int updated = jdbcTemplate.update(
+                "update report_summaries set data_version = ?, summary_text = ?, llm_summary = ?, aggregates_json = ?, created_at = ? "
+                        + "where from_date = ? and to_date = ? and branch_key = ?",
+                dataVersion, summary, fromLlm, json, now, from, to, key);
+        if (updated > 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(
+                    "insert into report_summaries (from_date, to_date, branch_key, data_version, summary_text, llm_summary, "
+                            + "aggregates_json, created_at) values (?, ?, ?, ?, ?, ?, ?, ?)",
+                    from, to, key, dataVersion, summary, fromLlm, json, now);
+        } catch (DuplicateKeyException ex) {
+            // another node stored the same range first; either summary is valid for its version
+        }
+    }
+
+    private static String branchKey(String branch) {
+        return branch == null ? "" : branch;
+    }
+
+    private String writeAggregates(SalesAggregatesDTO aggregates) {
+        if (aggregates == null) return null;
+        try {
+            return objectMapper.writeValueAsString(aggregates);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("could not serialize aggregates", ex);
+        }
+    }
+
+    private SalesAggregatesDTO readAggregates(String json) {
+        if (json == null) return null;
+        try {
+            return objectMapper.readValue(json, SalesAggregatesDTO.class);
+        } catch (JsonProcessingException ex) {
+            // the caller aggregates again, as for a row without aggregates
+            log.warn("Ignoring unreadable stored aggregates: {}", ex.getMessage());
+            return null;
+        }
+    }
+}
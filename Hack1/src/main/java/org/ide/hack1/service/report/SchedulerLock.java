@@ -0,0 +1,46 @@
+package org.ide.hack1.service.report;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Lock por nombre en la tabla scheduler_locks para que un job programado corra en un solo nodo a la vez.
+ * El lock vence solo a los {@code holdFor}, aunque el nodo que lo tomó muera sin liberarlo.
+ */
+@Component
+public class SchedulerLock {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SchedulerLock(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean tryLock(String name, String owner, Duration holdFor) {
+        Instant now = Instant.now();
+        Timestamp until = Timestamp.from(now.plus(holdFor));
+        int taken = jdbcTemplate.update(
+                "update scheduler_locks set locked_by = ?, locked_until = ? where name = ? and locked_until <= ?",
+                owner, until, name, Timestamp.from(now));
+        if (taken == 1) {
+            return true;
+        }
+        try {
+            jdbcTemplate.update("insert into scheduler_locks (name, locked_by, locked_until) values (?, ?, ?)", name, owner, until);
+            return true;
+        } catch (DuplicateKeyException ex) {
+            // held by another node
+            return false;
+        }
+    }
+
+    public void unlock(String name, String owner) {
+        jdbcTemplate.update("update scheduler_locks set locked_until = ? where name = ? and locked_by = ?",
+                Timestamp.from(Instant.now()), name, owner);
+    }
+}
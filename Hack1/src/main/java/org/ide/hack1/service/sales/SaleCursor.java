@@ -0,0 +1,34 @@
+package org.ide.hack1.service.sales;
+
+import org.ide.hack1.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Posición de keyset (soldAt, id) de la última venta devuelta, codificada como token opaco base64url.
+ */
+public record SaleCursor(Instant soldAt, String id) {
+
+    public String encode() {
+        String raw = soldAt.getEpochSecond() + "." + soldAt.getNano() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SaleCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(':');
+            int dot = raw.indexOf('.');
+            if (sep <= 0 || dot <= 0 || dot > sep || sep == raw.length() - 1) {
+                throw new IllegalArgumentException("malformed cursor");
+            }
+            long seconds = Long.parseLong(raw.substring(0, dot));
+            int nanos = Integer.parseInt(raw.substring(dot + 1, sep));
+            return new SaleCursor(Instant.ofEpochSecond(seconds, nanos), raw.substring(sep + 1));
+        } catch (IllegalArgumentException | java.time.DateTimeException ex) {
+            throw new BadRequestException("invalid cursor");
+        }
+    }
+}
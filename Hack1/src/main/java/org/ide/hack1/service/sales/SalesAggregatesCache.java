@@ -0,0 +1,228 @@
+package org.ide.hack1.service.sales;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.ide.hack1.config.ReadWriteRoutingDataSource;
+import org.ide.hack1.dto.summary.SalesAggregatesDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache LRU acotado (tamaño + TTL) de SalesAggregatesDTO por (from, to, branch).
+ *
+ * Las escrituras de ventas invalidan solo las entradas cuyo rango contiene el soldAt y cuya sucursal
+ * es la de la venta (o todas las sucursales). Se invalida al escribir y otra vez al hacer commit;
+ * un cálculo que se cruza con una escritura no se guarda (writeEpoch), así nunca queda un valor viejo.
+ * Con réplica de lectura el cálculo puede no ver una escritura que el primario ya confirmó (y que ya
+ * invalidó la entrada), por eso esos valores solo duran replica-ttl: lo viejo dura a lo sumo el lag + replica-ttl.
+ * El DTO es mutable: se guarda una copia y cada lectura recibe la suya, con mapas inmodificables.
+ */
+@Component
+public class SalesAggregatesCache {
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long replicaTtlNanos;
+    private final boolean replicaReads;
+    private final LinkedHashMap<Key, Entry> entries;
+    private final AtomicLong writeEpoch = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public SalesAggregatesCache(MeterRegistry meterRegistry,
+                                @Value("${sales.aggregation.cache.enabled:true}") boolean enabled,
+                                @Value("${sales.aggregation.cache.max-entries:1000}") int maxEntries,
+                                @Value("${sales.aggregation.cache.ttl:10m}") Duration ttl,
+                                @Value("${sales.aggregation.cache.replica-ttl:30s}") Duration replicaTtl,
+                                @Value("${datasource.replica.url:}") String replicaUrl,
+                                @Value("${datasource.replica.reads-to-primary:false}") boolean readsToPrimary) {
+        this.enabled = enabled && maxEntries > 0;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.replicaTtlNanos = Math.min(ttlNanos, replicaTtl.toNanos());
+        this.replicaReads = replicaUrl != null && !replicaUrl.isBlank() && !readsToPrimary;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > SalesAggregatesCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        FunctionCounter.builder("sales.aggregates.cache.gets", hits, AtomicLong::get).tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("sales.aggregates.cache.gets", misses, AtomicLong::get).tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("sales.aggregates.cache.evictions", evictions, AtomicLong::get).register(meterRegistry);
+        FunctionCounter.builder("sales.aggregates.cache.invalidations", invalidations, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("sales.aggregates.cache.size", this, SalesAggregatesCache::size).register(meterRegistry);
+    }
+
+    public SalesAggregatesDTO get(Instant from, Instant to, String branch, Supplier<SalesAggregatesDTO> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Key key = new Key(from, to, normalizeBranch(branch));
+        synchronized (entries) {
+            Entry e = entries.get(key);
+            if (e != null) {
+                if (e.expiresAtNanos - System.nanoTime() > 0) {
+                    hits.incrementAndGet();
+                    return immutableCopy(e.value);
+                }
+                entries.remove(key);
+                evictions.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+
+        long epoch = writeEpoch.get();
+        // read-only transactions of the loader go to the replica unless the caller is in an onPrimary scope
+        long entryTtl = replicaReads && !ReadWriteRoutingDataSource.inPrimaryScope() ? replicaTtlNanos : ttlNanos;
+        SalesAggregatesDTO value = immutableCopy(loader.get());
+        synchronized (entries) {
+            // skip the put if a sale was written while we were computing
+            if (writeEpoch.get() == epoch && entryTtl > 0) {
+                entries.put(key, new Entry(value, System.nanoTime() + entryTtl));
+            }
+        }
+        // the caller may set fields on its DTO; the cached one stays untouched
+        return immutableCopy(value);
+    }
+
+    /**
+     * Invalida ahora y, si hay una transacción activa, otra vez después del commit.
+     */
+    public void invalidateOnCommit(Instant soldAt, String branch) {
+        invalidate(soldAt, branch);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(soldAt, branch);
+                }
+            });
+        }
+    }
+
+    public void invalidate(Instant soldAt, String branch) {
+        writeEpoch.incrementAndGet();
+        if (!enabled) return;
+        String b = normalizeBranch(branch);
+        synchronized (entries) {
+            Iterator<Key> it = entries.keySet().iterator();
+            while (it.hasNext()) {
+                Key k = it.next();
+                if (k.covers(soldAt, b)) {
+                    it.remove();
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Como invalidateOnCommit pero para un lote: quita las entradas que se solapan con [first, last]
+     * en alguna de las sucursales escritas.
+     */
+    public void invalidateRangeOnCommit(Instant first, Instant last, Set<String> branches) {
+        invalidateRange(first, last, branches);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateRange(first, last, branches);
+                }
+            });
+        }
+    }
+
+    public void invalidateRange(Instant first, Instant last, Set<String> branches) {
+        writeEpoch.incrementAndGet();
+        if (!enabled) return;
+        synchronized (entries) {
+            Iterator<Key> it = entries.keySet().iterator();
+            while (it.hasNext()) {
+                Key k = it.next();
+                if (k.overlaps(first, last, branches)) {
+                    it.remove();
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        writeEpoch.incrementAndGet();
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long hitCount() {
+        return hits.get();
+    }
+
+    public long missCount() {
+        return misses.get();
+    }
+
+    public long evictionCount() {
+        return evictions.get();
+    }
+
+    static String normalizeBranch(String branch) {
+        return branch == null || branch.isBlank() ? null : branch.trim();
+    }
+
+    // Map.copyOf returns an already immutable map as is, so copying a cached value only allocates the DTO
+    private static SalesAggregatesDTO immutableCopy(SalesAggregatesDTO dto) {
+        return SalesAggregatesDTO.builder()
+                .totalUnits(dto.getTotalUnits())
+                .totalRevenue(dto.getTotalRevenue())
+                .topSku(dto.getTopSku())
+                .topBranch(dto.getTopBranch())
+                .unitsBySku(dto.getUnitsBySku() != null ? Map.copyOf(dto.getUnitsBySku()) : Map.of())
+                .revenueByBranch(dto.getRevenueByBranch() != null ? Map.copyOf(dto.getRevenueByBranch()) : Map.of())
+                .build();
+    }
+
+    private record Key(Instant from, Instant to, String branch) {
+
+        boolean covers(Instant soldAt, String saleBranch) {
+            boolean inRange = (from == null || !soldAt.isBefore(from)) && (to == null || !soldAt.isAfter(to));
+            return inRange && (branch == null || Objects.equals(branch, saleBranch));
+        }
+
+        boolean overlaps(Instant first, Instant last, Set<String> branches) {
+            boolean inRange = (from == null || !last.isBefore(from)) && (to == null || !first.isAfter(to));
+            return inRange && (branch == null || branches.contains(branch));
+        }
+    }
+
+    private record Entry(SalesAggregatesDTO value, long expiresAtNanos) {
+    }
+}
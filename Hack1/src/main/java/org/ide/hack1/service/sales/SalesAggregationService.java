@@ -1,56 +1,172 @@
 package org.ide.hack1.service.sales;
 
 import org.ide.hack1.dto.summary.SalesAggregatesDTO;
-import org.ide.hack1.entity.Sale;
+import org.ide.hack1.dto.summary.SalesGroupRow;
 import org.ide.hack1.repository.SaleRepository;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.Instant;
-import java.util.Comparator;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 @Service
 public class SalesAggregationService {
 
+    private static final LocalTime LAST_SECOND_OF_DAY = LocalTime.of(23, 59, 59);
+
     private final SaleRepository saleRepository;
+    private final SalesRollupService salesRollupService;
+    private final ForkJoinPool aggregationPool;
+    private final SalesAggregatesCache aggregatesCache;
+    private final TransactionTemplate readOnlyTx;
+    private final boolean rollupEnabled;
+    private final int sliceDays;
+    private final int parallelMinDays;
 
-    public SalesAggregationService(SaleRepository saleRepository) {
+    public SalesAggregationService(SaleRepository saleRepository,
+                                   SalesRollupService salesRollupService,
+                                   @Qualifier("aggregationPool") ForkJoinPool aggregationPool,
+                                   SalesAggregatesCache aggregatesCache,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${sales.rollup.enabled:false}") boolean rollupEnabled,
+                                   @Value("${sales.aggregation.slice-days:7}") int sliceDays,
+                                   @Value("${sales.aggregation.parallel-min-days:31}") int parallelMinDays) {
         this.saleRepository = saleRepository;
+        this.salesRollupService = salesRollupService;
+        this.aggregationPool = aggregationPool;
+        this.aggregatesCache = aggregatesCache;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.rollupEnabled = rollupEnabled;
+        this.sliceDays = Math.max(1, sliceDays);
+        this.parallelMinDays = parallelMinDays;
     }
 
     public SalesAggregatesDTO calculateAggregates(Instant from, Instant to, String branch) {
-        List<Sale> sales;
-        if (branch == null || branch.isBlank()) {
-            sales = saleRepository.findBySoldAtBetween(from, to);
+        // the cache key and the query must see the same branch, or " Miraflores " would fill the "Miraflores" entry
+        String normalized = SalesAggregatesCache.normalizeBranch(branch);
+        // read-only, so with a replica configured the aggregation runs there; the cache keeps such results only briefly
+        return aggregatesCache.get(from, to, normalized, () -> compute(from, to, normalized));
+    }
+
+    private SalesAggregatesDTO compute(Instant from, Instant to, String branch) {
+        boolean allBranches = branch == null || branch.isBlank();
+        if (allBranches && aggregationPool.getParallelism() > 1 && spansAtLeastDays(from, to, parallelMinDays)) {
+            // multi-month, all-branch ranges: aggregate time slices in parallel and merge in slice order
+            List<Slice> slices = planSlices(from, to);
+            return aggregationPool.invoke(new SliceTask(slices, 0, slices.size())).result();
+        }
+
+        SalesAggregator aggregator = new SalesAggregator();
+        List<SalesGroupRow> rows = readOnlyTx.execute(status -> rowsFor(from, to, branch));
+        if (rows != null) {
+            rows.forEach(aggregator::accept);
+        }
+        return aggregator.result();
+    }
+
+    private List<SalesGroupRow> rowsFor(Instant from, Instant to, String branch) {
+        if (rollupEnabled && coversWholeDays(from, to)) {
+            // whole UTC days are answered from sales_daily_rollup: cost is days x skus, not number of sales
+            return salesRollupService.sumBySkuAndBranch(SalesRollupService.dayOf(from), SalesRollupService.dayOf(to), branch);
+        } else if (branch == null || branch.isBlank()) {
+            // GROUP BY (sku, branch) runs in the database; only the grouped totals are loaded
+            return saleRepository.sumBySkuAndBranch(from, to);
         } else {
-            sales = saleRepository.findBySoldAtBetweenAndBranch(from, to, branch, PageRequest.of(0, Integer.MAX_VALUE)).getContent();
-        }
-
-        long totalUnits = sales.stream().mapToLong(Sale::getUnits).sum();
-        double totalRevenue = sales.stream().mapToDouble(s -> s.getUnits() * s.getPrice()).sum();
-
-        Map<String, Long> unitsBySku = sales.stream().collect(Collectors.groupingBy(Sale::getSku, Collectors.summingLong(Sale::getUnits)));
-        String topSku = unitsBySku.entrySet().stream()
-                .max(Comparator.comparingLong(Map.Entry::getValue))
-                .map(Map.Entry::getKey)
-                .orElse(null);
-
-        Map<String, Double> revenueByBranch = sales.stream().collect(Collectors.groupingBy(Sale::getBranch, Collectors.summingDouble(s -> s.getUnits() * s.getPrice())));
-        String topBranch = revenueByBranch.entrySet().stream()
-                .max(Comparator.comparingDouble(Map.Entry::getValue))
-                .map(Map.Entry::getKey)
-                .orElse(null);
-
-        return SalesAggregatesDTO.builder()
-                .totalUnits(totalUnits)
-                .totalRevenue(totalRevenue)
-                .topSku(topSku)
-                .topBranch(topBranch)
-                .unitsBySku(unitsBySku)
-                .revenueByBranch(revenueByBranch)
-                .build();
+            return saleRepository.sumBySkuAndBranchForBranch(from, to, branch);
+        }
+    }
+
+    private List<SalesGroupRow> sliceRows(Slice slice) {
+        if (slice.inclusiveEnd()) {
+            return rowsFor(slice.from(), slice.to(), null);
+        }
+        // inner slices are [from, to) with to on a UTC midnight
+        if (rollupEnabled && isMidnight(slice.from())) {
+            return salesRollupService.sumBySkuAndBranch(SalesRollupService.dayOf(slice.from()),
+                    SalesRollupService.dayOf(slice.to()).minusDays(1), null);
+        }
+        return saleRepository.sumBySkuAndBranchUntil(slice.from(), slice.to());
+    }
+
+    /**
+     * Splits [from, to] at UTC midnights every sliceDays days. Every slice but the last is half-open,
+     * the last keeps the inclusive end of the original range, so no sale is counted twice.
+     */
+    List<Slice> planSlices(Instant from, Instant to) {
+        List<Slice> slices = new ArrayList<>();
+        Instant start = from;
+        Instant boundary = SalesRollupService.dayOf(from).plusDays(sliceDays).atStartOfDay().toInstant(ZoneOffset.UTC);
+        while (!boundary.isAfter(to)) {
+            slices.add(new Slice(start, boundary, false));
+            start = boundary;
+            boundary = boundary.plus(Duration.ofDays(sliceDays));
+        }
+        slices.add(new Slice(start, to, true));
+        return slices;
+    }
+
+    private static boolean spansAtLeastDays(Instant from, Instant to, int days) {
+        return from != null && to != null && !to.isBefore(from) && Duration.between(from, to).toDays() >= days;
+    }
+
+    private static boolean isMidnight(Instant instant) {
+        return instant.atOffset(ZoneOffset.UTC).toLocalTime().equals(LocalTime.MIDNIGHT);
+    }
+
+    /**
+     * True when [from, to] starts at UTC midnight and ends on the last second of a UTC day
+     * (the window ReportEventlisteners builds from LocalDate ranges).
+     */
+    static boolean coversWholeDays(Instant from, Instant to) {
+        if (from == null || to == null || to.isBefore(from)) return false;
+        LocalTime end = to.atOffset(ZoneOffset.UTC).toLocalTime();
+        return isMidnight(from) && (end.equals(LAST_SECOND_OF_DAY) || end.equals(LocalTime.MAX));
+    }
+
+    record Slice(Instant from, Instant to, boolean inclusiveEnd) {
+    }
+
+    /**
+     * Divide la lista de slices en mitades; cada hoja lee su slice en una transacción read-only.
+     * Los parciales se combinan siempre izquierda + derecha para que el resultado sea determinista.
+     */
+    private class SliceTask extends RecursiveTask<SalesAggregator> {
+
+        private final List<Slice> slices;
+        private final int lo;
+        private final int hi;
+
+        SliceTask(List<Slice> slices, int lo, int hi) {
+            this.slices = slices;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected SalesAggregator compute() {
+            if (hi - lo == 1) {
+                SalesAggregator partial = new SalesAggregator();
+                List<SalesGroupRow> rows = readOnlyTx.execute(status -> sliceRows(slices.get(lo)));
+                if (rows != null) {
+                    rows.forEach(partial::accept);
+                }
+                return partial;
+            }
+            int mid = (lo + hi) >>> 1;
+            SliceTask left = new SliceTask(slices, lo, mid);
+            left.fork();
+            SalesAggregator right = new SliceTask(slices, mid, hi).compute();
+            return left.join().merge(right);
+        }
     }
 }
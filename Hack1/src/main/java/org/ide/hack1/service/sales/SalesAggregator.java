@@ -0,0 +1,199 @@
+package org.ide.hack1.service.sales;
+
+import org.ide.hack1.dto.summary.SalesAggregatesDTO;
+import org.ide.hack1.dto.summary.SalesGroupRow;
+import org.ide.hack1.entity.Sale;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collector;
+
+/**
+ * Acumulador de una sola pasada para SalesAggregatesDTO.
+ *
+ * SKUs y sucursales se internan a códigos enteros densos con una tabla de direccionamiento abierto;
+ * unidades y revenue se suman en arreglos primitivos indexados por código, sin boxing por fila.
+ * Acepta ventas, filas agrupadas o streams, así que no necesita un List<Sale> materializado.
+ * No es thread-safe: usar una instancia por hilo y combinar con {@link #merge(SalesAggregator)}.
+ */
+public final class SalesAggregator {
+
+    private final CodeTable skus = new CodeTable();
+    private final CodeTable branches = new CodeTable();
+    private long[] unitsBySku = new long[CodeTable.INITIAL_CAPACITY];
+    private double[] revenueByBranch = new double[CodeTable.INITIAL_CAPACITY];
+    private long totalUnits;
+    private double totalRevenue;
+
+    public void accept(String sku, String branch, long units, double revenue) {
+        int skuCode = skus.codeOf(sku);
+        if (skuCode == unitsBySku.length) {
+            unitsBySku = Arrays.copyOf(unitsBySku, skuCode * 2);
+        }
+        unitsBySku[skuCode] += units;
+
+        int branchCode = branches.codeOf(branch);
+        if (branchCode == revenueByBranch.length) {
+            revenueByBranch = Arrays.copyOf(revenueByBranch, branchCode * 2);
+        }
+        revenueByBranch[branchCode] += revenue;
+
+        totalUnits += units;
+        totalRevenue += revenue;
+    }
+
+    public void accept(Sale s) {
+        int units = s.getUnits();
+        // units * price computed once per sale
+        accept(s.getSku(), s.getBranch(), units, units * s.getPrice());
+    }
+
+    public void accept(SalesGroupRow row) {
+        accept(row.getSku(), row.getBranch(), row.getUnits(), row.getRevenue());
+    }
+
+    public SalesAggregator merge(SalesAggregator other) {
+        for (int c = 0; c < other.skus.size(); c++) {
+            int code = skus.codeOf(other.skus.nameOf(c));
+            if (code >= unitsBySku.length) {
+                unitsBySku = Arrays.copyOf(unitsBySku, Math.max(code + 1, unitsBySku.length * 2));
+            }
+            unitsBySku[code] += other.unitsBySku[c];
+        }
+        for (int c = 0; c < other.branches.size(); c++) {
+            int code = branches.codeOf(other.branches.nameOf(c));
+            if (code >= revenueByBranch.length) {
+                revenueByBranch = Arrays.copyOf(revenueByBranch, Math.max(code + 1, revenueByBranch.length * 2));
+            }
+            revenueByBranch[code] += other.revenueByBranch[c];
+        }
+        totalUnits += other.totalUnits;
+        totalRevenue += other.totalRevenue;
+        return this;
+    }
+
+    /**
+     * Construye el DTO. Empates en topSku/topBranch se resuelven con el nombre menor (orden lexicográfico)
+     * y los montos se redondean a 6 decimales, así el resultado no depende del orden en que se sumaron
+     * las filas (secuencial, por slices en paralelo o desde el rollup).
+     */
+    public SalesAggregatesDTO result() {
+        Map<String, Long> unitsMap = HashMap.newHashMap(skus.size());
+        String topSku = null;
+        long topUnits = 0;
+        for (int c = 0; c < skus.size(); c++) {
+            String name = skus.nameOf(c);
+            long units = unitsBySku[c];
+            unitsMap.put(name, units);
+            if (topSku == null || units > topUnits || (units == topUnits && name.compareTo(topSku) < 0)) {
+                topSku = name;
+                topUnits = units;
+            }
+        }
+
+        Map<String, Double> revenueMap = HashMap.newHashMap(branches.size());
+        String topBranch = null;
+        double topRevenue = 0.0;
+        for (int c = 0; c < branches.size(); c++) {
+            String name = branches.nameOf(c);
+            double revenue = roundMoney(revenueByBranch[c]);
+            revenueMap.put(name, revenue);
+            if (topBranch == null || revenue > topRevenue || (revenue == topRevenue && name.compareTo(topBranch) < 0)) {
+                topBranch = name;
+                topRevenue = revenue;
+            }
+        }
+
+        return SalesAggregatesDTO.builder()
+                .totalUnits(totalUnits)
+                .totalRevenue(roundMoney(totalRevenue))
+                .topSku(topSku)
+                .topBranch(topBranch)
+                .unitsBySku(unitsMap)
+                .revenueByBranch(revenueMap)
+                .build();
+    }
+
+    private static double roundMoney(double value) {
+        return Math.round(value * 1_000_000d) / 1_000_000d;
+    }
+
+    /**
+     * Collector para agregar un Stream<Sale> (p. ej. un stream de JPA) sin materializar la lista.
+     */
+    public static Collector<Sale, SalesAggregator, SalesAggregatesDTO> collector() {
+        return Collector.of(SalesAggregator::new, SalesAggregator::accept, SalesAggregator::merge, SalesAggregator::result);
+    }
+
+    /**
+     * Interna strings a códigos 0..n-1 usando direccionamiento abierto con sondeo lineal.
+     */
+    static final class CodeTable {
+
+        static final int INITIAL_CAPACITY = 16;
+
+        private String[] keys = new String[INITIAL_CAPACITY * 2];
+        private int[] hashes = new int[INITIAL_CAPACITY * 2];
+        private int[] codes = new int[INITIAL_CAPACITY * 2];
+        private String[] names = new String[INITIAL_CAPACITY];
+        private int size;
+
+        int codeOf(String key) {
+            int h = spread(key.hashCode());
+            int mask = keys.length - 1;
+            int i = h & mask;
+            while (keys[i] != null) {
+                if (hashes[i] == h && keys[i].equals(key)) {
+                    return codes[i];
+                }
+                i = (i + 1) & mask;
+            }
+            int code = size++;
+            keys[i] = key;
+            hashes[i] = h;
+            codes[i] = code;
+            if (code == names.length) {
+                names = Arrays.copyOf(names, code * 2);
+            }
+            names[code] = key;
+            // keep load factor <= 0.5
+            if (size * 2 > keys.length) {
+                rehash();
+            }
+            return code;
+        }
+
+        String nameOf(int code) {
+            return names[code];
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void rehash() {
+            String[] oldKeys = keys;
+            int[] oldHashes = hashes;
+            int[] oldCodes = codes;
+            keys = new String[oldKeys.length * 2];
+            hashes = new int[oldKeys.length * 2];
+            codes = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] == null) continue;
+                int i = oldHashes[j] & mask;
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                hashes[i] = oldHashes[j];
+                codes[i] = oldCodes[j];
+            }
+        }
+
+        private static int spread(int h) {
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package org.ide.hack1.service.sales;
+
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.ide.hack1.dto.sales.SaleBatchItemResult;
+import org.ide.hack1.dto.sales.SaleBatchResponse;
+import org.ide.hack1.dto.sales.SaleRequest;
+import org.ide.hack1.entity.Sale;
+import org.ide.hack1.exception.BadRequestException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Alta masiva de ventas: valida todo el lote, inserta por bloques de chunk-size en transacciones separadas
+ * (con el batching JDBC de Hibernate) y devuelve un resultado por ítem. Un bloque que falla no afecta a los demás.
+ */
+@Service
+public class SalesBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(SalesBatchService.class);
+
+    private final EntityManager entityManager;
+    private final SalesRollupService salesRollupService;
+    private final SalesAggregatesCache aggregatesCache;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int maxItems;
+
+    public SalesBatchService(EntityManager entityManager,
+                             SalesRollupService salesRollupService,
+                             SalesAggregatesCache aggregatesCache,
+                             Validator validator,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${sales.batch.chunk-size:500}") int chunkSize,
+                             @Value("${sales.batch.max-items:10000}") int maxItems) {
+        this.entityManager = entityManager;
+        this.salesRollupService = salesRollupService;
+        this.aggregatesCache = aggregatesCache;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxItems = maxItems;
+    }
+
+    public int maxItems() {
+        return maxItems;
+    }
+
+    /**
+     * Items null se reportan como REJECTED con {@code parseErrors.get(index)} si existe (líneas NDJSON mal formadas).
+     */
+    public SaleBatchResponse createSales(List<SaleRequest> items, List<String> parseErrors, String username, String role, String userBranch) {
+        if (items.size() > maxItems) {
+            throw new BadRequestException("batch exceeds " + maxItems + " items");
+        }
+
+        SaleBatchItemResult[] results = new SaleBatchItemResult[items.size()];
+        List<Integer> accepted = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            String error = rejection(items.get(i), parseErrors != null && i < parseErrors.size() ? parseErrors.get(i) : null, role, userBranch);
+            if (error != null) {
+                results[i] = new SaleBatchItemResult(i, SaleBatchItemResult.Status.REJECTED, null, error);
+            } else {
+                accepted.add(i);
+            }
+        }
+
+        for (int start = 0; start < accepted.size(); start += chunkSize) {
+            List<Integer> chunk = accepted.subList(start, Math.min(start + chunkSize, accepted.size()));
+            try {
+                List<Sale> saved = transactionTemplate.execute(status -> insertChunk(items, chunk, username));
+                for (int j = 0; j < chunk.size(); j++) {
+                    int idx = chunk.get(j);
+                    results[idx] = new SaleBatchItemResult(idx, SaleBatchItemResult.Status.CREATED, saved.get(j).getId(), null);
+                }
+            } catch (RuntimeException ex) {
+                log.error("Sales batch chunk of {} items failed: {}", chunk.size(), ex.getMessage(), ex);
+                for (int idx : chunk) {
+                    // the cause (SQL, constraint names) stays in the log
+                    results[idx] = new SaleBatchItemResult(idx, SaleBatchItemResult.Status.FAILED, null,
+                            "chunk could not be saved, none of its items were stored");
+                }
+            }
+        }
+
+        int created = 0, rejected = 0, failed = 0;
+        for (SaleBatchItemResult r : results) {
+            switch (r.getStatus()) {
+                case CREATED -> created++;
+                case REJECTED -> rejected++;
+                case FAILED -> failed++;
+            }
+        }
+        return SaleBatchResponse.builder()
+                .received(items.size())
+                .created(created)
+                .rejected(rejected)
+                .failed(failed)
+                .results(List.of(results))
+                .build();
+    }
+
+    private String rejection(SaleRequest req, String parseError, String role, String userBranch) {
+        if (req == null) {
+            return parseError != null ? parseError : "empty item";
+        }
+        Set<ConstraintViolation<SaleRequest>> violations = validator.validate(req);
+        if (!violations.isEmpty()) {
+            // sorted so the message is stable between calls
+            Set<String> messages = new TreeSet<>();
+            for (ConstraintViolation<SaleRequest> v : violations) {
+                messages.add(v.getPropertyPath() + " " + v.getMessage());
+            }
+            return String.join("; ", messages);
+        }
+        // same rule as createSale, per item
+        if ("BRANCH".equals(role) && !req.getBranch().equals(userBranch)) {
+            return "branch mismatch";
+        }
+        return null;
+    }
+
+    private List<Sale> insertChunk(List<SaleRequest> items, List<Integer> chunk, String username) {
+        List<Sale> sales = new ArrayList<>(chunk.size());
+        Instant first = null;
+        Instant last = null;
+        Set<String> branches = new HashSet<>();
+        for (int idx : chunk) {
+            SaleRequest req = items.get(idx);
+            Sale s = new Sale();
+            s.setSku(req.getSku());
+            s.setUnits(req.getUnits());
+            s.setPrice(req.getPrice());
+            s.setBranch(req.getBranch());
+            s.setSoldAt(req.getSoldAt());
+            s.setCreatedBy(username);
+            // ids are assigned in @PrePersist, so persist() queues the insert and Hibernate batches it
+            entityManager.persist(s);
+            sales.add(s);
+            first = first == null || s.getSoldAt().isBefore(first) ? s.getSoldAt() : first;
+            last = last == null || s.getSoldAt().isAfter(last) ? s.getSoldAt() : last;
+            branches.add(s.getBranch());
+        }
+        salesRollupService.onCreatedAll(sales);
+        aggregatesCache.invalidateRangeOnCommit(first, last, branches);
+        // write the chunk now and drop it from the persistence context so it does not grow across chunks
+        entityManager.flush();
+        entityManager.clear();
+        return sales;
+    }
+}
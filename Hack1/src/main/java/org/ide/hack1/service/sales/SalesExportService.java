@@ -0,0 +1,224 @@
+package org.ide.hack1.service.sales;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.ide.hack1.exception.BadRequestException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Locale;
+
+/**
+ * Exporta ventas como CSV o NDJSON leyendo con un cursor de solo avance y escribiendo fila a fila,
+ * sin materializar la lista: el heap usado no depende del número de filas.
+ */
+@Service
+public class SalesExportService {
+
+    public enum Format {
+        CSV("text/csv"),
+        NDJSON("application/x-ndjson");
+
+        private final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public static Format parse(String value) {
+            if (value == null || value.isBlank()) return NDJSON;
+            try {
+                return Format.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ex) {
+                throw new BadRequestException("format must be csv or ndjson");
+            }
+        }
+    }
+
+    private static final String COLUMNS = "id, sku, units, price, branch, sold_at, created_by, created_at";
+    // same (soldAt, id) order as the paged listing, served by idx_sales_sold_at_id / idx_sales_branch_sold_at_id
+    private static final String ALL_BRANCHES = "select " + COLUMNS + " from sales where sold_at between ? and ? order by sold_at, id";
+    private static final String ONE_BRANCH = "select " + COLUMNS + " from sales where sold_at between ? and ? and branch = ? order by sold_at, id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTx;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public SalesExportService(DataSource dataSource,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${sales.export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    /**
+     * Escribe las ventas de [from, to] en {@code out}. Aplica el mismo alcance por sucursal que listSales.
+     */
+    public void export(Instant from, Instant to, String branch, Format format, String role, String userBranch, OutputStream out) {
+        // enforce branch for BRANCH users
+        if ("BRANCH".equals(role)) {
+            branch = userBranch;
+        }
+        String scopedBranch = branch == null || branch.isBlank() ? null : branch;
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        RowWriter rows = format == Format.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer, jsonFactory);
+
+        // the transaction keeps autocommit off, which PostgreSQL needs to honour the fetch size as a server-side cursor
+        readOnlyTx.executeWithoutResult(status -> {
+            if (scopedBranch == null) {
+                jdbcTemplate.query(ALL_BRANCHES, rs -> { rows.write(rs); }, from.atOffset(ZoneOffset.UTC), to.atOffset(ZoneOffset.UTC));
+            } else {
+                jdbcTemplate.query(ONE_BRANCH, rs -> { rows.write(rs); }, from.atOffset(ZoneOffset.UTC), to.atOffset(ZoneOffset.UTC), scopedBranch);
+            }
+        });
+        try {
+            rows.finish();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static Instant instant(ResultSet rs, String column) throws SQLException {
+        OffsetDateTime value = rs.getObject(column, OffsetDateTime.class);
+        return value != null ? value.toInstant() : null;
+    }
+
+    private abstract static class RowWriter {
+
+        final Writer writer;
+
+        RowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        final void write(ResultSet rs) throws SQLException {
+            try {
+                writeRow(rs);
+            } catch (IOException ex) {
+                // client went away: abort the query instead of reading the rest of the cursor
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        abstract void writeRow(ResultSet rs) throws SQLException, IOException;
+
+        void finish() throws IOException {
+            writer.flush();
+        }
+    }
+
+    private static final class CsvRowWriter extends RowWriter {
+
+        private boolean headerWritten;
+
+        CsvRowWriter(Writer writer) {
+            super(writer);
+        }
+
+        @Override
+        void writeRow(ResultSet rs) throws SQLException, IOException {
+            writeHeaderOnce();
+            writer.write(csv(rs.getString("id")));
+            writer.write(',');
+            writer.write(csv(rs.getString("sku")));
+            writer.write(',');
+            writer.write(Integer.toString(rs.getInt("units")));
+            writer.write(',');
+            writer.write(Double.toString(rs.getDouble("price")));
+            writer.write(',');
+            writer.write(csv(rs.getString("branch")));
+            writer.write(',');
+            writer.write(String.valueOf(instant(rs, "sold_at")));
+            writer.write(',');
+            writer.write(csv(rs.getString("created_by")));
+            writer.write(',');
+            writer.write(String.valueOf(instant(rs, "created_at")));
+            writer.write('\n');
+        }
+
+        @Override
+        void finish() throws IOException {
+            // an empty export still gets its header line
+            writeHeaderOnce();
+            super.finish();
+        }
+
+        private void writeHeaderOnce() throws IOException {
+            if (!headerWritten) {
+                writer.write("id,sku,units,price,branch,soldAt,createdBy,createdAt\n");
+                headerWritten = true;
+            }
+        }
+
+        // RFC 4180: quote fields containing separators, quotes or line breaks
+        private static String csv(String value) {
+            if (value == null) return "";
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    private static final class NdjsonRowWriter extends RowWriter {
+
+        private final JsonGenerator json;
+
+        NdjsonRowWriter(Writer writer, JsonFactory factory) {
+            super(writer);
+            try {
+                this.json = factory.createGenerator(writer);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            // one object per line; the generator must not close the response stream
+            this.json.setRootValueSeparator(null);
+            this.json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        void writeRow(ResultSet rs) throws SQLException, IOException {
+            json.writeStartObject();
+            json.writeStringField("id", rs.getString("id"));
+            json.writeStringField("sku", rs.getString("sku"));
+            json.writeNumberField("units", rs.getInt("units"));
+            json.writeNumberField("price", rs.getDouble("price"));
+            json.writeStringField("branch", rs.getString("branch"));
+            json.writeStringField("soldAt", String.valueOf(instant(rs, "sold_at")));
+            json.writeStringField("createdBy", rs.getString("created_by"));
+            json.writeStringField("createdAt", String.valueOf(instant(rs, "created_at")));
+            json.writeEndObject();
+            // the newline goes through the generator so its buffer and the writer stay in order
+            json.writeRaw('\n');
+        }
+
+        @Override
+        void finish() throws IOException {
+            json.flush();
+            super.finish();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package org.ide.hack1.service.sales;
+
+import org.ide.hack1.service.report.SchedulerLock;
+import org.ide.hack1.util.IdGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Mantenimiento de las particiones mensuales de sales en PostgreSQL (migración V2): crea los meses
+ * siguientes por adelantado y, si hay retención configurada, desacopla los meses viejos y los mueve
+ * al esquema sales_archive en lugar de borrarlos fila a fila. Sus filas de sales_daily_rollup se borran
+ * en la misma transacción, así los agregados por día completo tampoco cuentan los meses archivados.
+ * Corre en un solo nodo a la vez ({@link SchedulerLock}): al arrancar varios nodos juntos, el resto no hace nada.
+ */
+@Service
+@ConditionalOnProperty(name = "sales.partitioning.enabled", havingValue = "true")
+public class SalesPartitionMaintenance {
+
+    private static final Logger log = LoggerFactory.getLogger(SalesPartitionMaintenance.class);
+    private static final Pattern PARTITION_NAME = Pattern.compile("sales_(\\d{4})_(\\d{2})");
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    private static final String LOCK_NAME = "sales-partition-maintenance";
+    private static final Duration LOCK_HOLD = Duration.ofMinutes(10);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SalesAggregatesCache aggregatesCache;
+    private final SchedulerLock schedulerLock;
+    private final TransactionTemplate transactionTemplate;
+    private final String nodeId = IdGenerator.newId("partitions_");
+    private final int monthsAhead;
+    private final int retentionMonths;
+
+    public SalesPartitionMaintenance(JdbcTemplate jdbcTemplate,
+                                     SalesAggregatesCache aggregatesCache,
+                                     SchedulerLock schedulerLock,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${sales.partitioning.months-ahead:3}") int monthsAhead,
+                                     @Value("${sales.partitioning.retention-months:0}") int retentionMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.aggregatesCache = aggregatesCache;
+        this.schedulerLock = schedulerLock;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        runMaintenance();
+    }
+
+    @Scheduled(cron = "${sales.partitioning.cron:0 30 2 * * *}", zone = "UTC")
+    public void runMaintenance() {
+        if (!schedulerLock.tryLock(LOCK_NAME, nodeId, LOCK_HOLD)) {
+            log.info("Sales partition maintenance already running on another node");
+            return;
+        }
+        try {
+            YearMonth current = YearMonth.now(ZoneOffset.UTC);
+            createPartitions(current, current.plusMonths(monthsAhead));
+            if (retentionMonths > 0) {
+                archivePartitionsBefore(current.minusMonths(retentionMonths));
+            }
+        } finally {
+            schedulerLock.unlock(LOCK_NAME, nodeId);
+        }
+    }
+
+    /**
+     * Crea las particiones de {@code first} a {@code last}; un mes que falla no impide crear los siguientes.
+     */
+    void createPartitions(YearMonth first, YearMonth last) {
+        for (YearMonth m = first; !m.isAfter(last); m = m.plusMonths(1)) {
+            try {
+                jdbcTemplate.execute(createPartitionSql(m));
+            } catch (RuntimeException ex) {
+                // typically rows for that month already sit in sales_default; they must be moved by hand first
+                log.error("Could not create sales partition {}: {}", partitionName(m), ex.getMessage(), ex);
+            }
+        }
+    }
+
+    static String partitionName(YearMonth month) {
+        return "sales_" + month.format(SUFFIX);
+    }
+
+    // bounds are [first day of the month, first day of the next) in UTC, like the partitions of V2
+    static String createPartitionSql(YearMonth month) {
+        LocalDate start = month.atDay(1);
+        LocalDate end = month.plusMonths(1).atDay(1);
+        return "create table if not exists " + partitionName(month) + " partition of sales "
+                + "for values from ('" + start + " 00:00:00+00') to ('" + end + " 00:00:00+00')";
+    }
+
+    static Optional<YearMonth> monthOf(String partition) {
+        Matcher m = PARTITION_NAME.matcher(partition);
+        if (!m.matches()) {
+            return Optional.empty();
+        }
+        return Optional.of(YearMonth.of(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2))));
+    }
+
+    /**
+     * Desacopla cada partición anterior a {@code firstKept} y la mueve a sales_archive.
+     * DETACH solo cambia el catálogo: el lock exclusivo sobre sales dura milisegundos, no lo que duraría un DELETE.
+     */
+    void archivePartitionsBefore(YearMonth firstKept) {
+        List<String> archived = new ArrayList<>();
+        for (String partition : attachedMonthlyPartitions()) {
+            Optional<YearMonth> parsed = monthOf(partition);
+            if (parsed.isEmpty() || !parsed.get().isBefore(firstKept)) continue;
+            YearMonth month = parsed.get();
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    // not CONCURRENTLY: PostgreSQL refuses it while sales_default exists
+                    jdbcTemplate.execute("alter table sales detach partition " + partition);
+                    jdbcTemplate.execute("alter table " + partition + " set schema sales_archive");
+                    jdbcTemplate.update("delete from sales_daily_rollup where sale_day >= ? and sale_day < ?",
+                            month.atDay(1), month.plusMonths(1).atDay(1));
+                });
+                archived.add(partition);
+            } catch (RuntimeException ex) {
+                // the next run tries it again; the other months are still archived
+                log.error("Could not archive sales partition {}: {}", partition, ex.getMessage(), ex);
+            }
+        }
+        if (!archived.isEmpty()) {
+            // cached aggregates may include the archived months
+            aggregatesCache.clear();
+            log.info("Archived sales partitions {} to schema sales_archive", archived);
+        }
+    }
+
+    private List<String> attachedMonthlyPartitions() {
+        return jdbcTemplate.queryForList(
+                "select c.relname from pg_inherits i "
+                        + "join pg_class c on c.oid = i.inhrelid "
+                        + "join pg_class p on p.oid = i.inhparent "
+                        + "join pg_namespace n on n.oid = p.relnamespace "
+                        + "where p.relname = 'sales' and n.nspname = current_schema() order by c.relname",
+                String.class);
+    }
+}
@@ -0,0 +1,308 @@
+package org.ide.hack1.service.sales;
+
+import org.ide.hack1.dto.sales.RollupDriftDTO;
+import org.ide.hack1.dto.sales.RollupReconcileResponse;
+import org.ide.hack1.dto.summary.SalesGroupRow;
+import org.ide.hack1.entity.Sale;
+import org.ide.hack1.entity.SalesDailyRollup;
+import org.ide.hack1.repository.SaleRepository;
+import org.ide.hack1.repository.SalesDailyRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.DatabaseMetaData;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Mantiene la tabla sales_daily_rollup: una fila por (día UTC, sucursal, SKU) con unidades y revenue.
+ * Los métodos on* deben llamarse dentro de la transacción que escribe la venta.
+ */
+@Service
+public class SalesRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(SalesRollupService.class);
+    private static final int MAX_REPORTED_DRIFTS = 500;
+    private static final int UPSERT_BATCH_SIZE = 500;
+    // one statement, so two first sales of a group racing each other both add up instead of one hitting the PK
+    private static final String UPSERT_SQL_POSTGRESQL = "insert into sales_daily_rollup (sale_day, branch, sku, units, revenue) " +
+            "values (?, ?, ?, ?, ?) on conflict (sale_day, branch, sku) do update set " +
+            "units = sales_daily_rollup.units + excluded.units, revenue = sales_daily_rollup.revenue + excluded.revenue, " +
+            "version = nextval('sales_rollup_version_seq')";
+    // H2 only knows ON CONFLICT DO NOTHING, and its MERGE is not atomic: see upsert()
+    private static final String UPSERT_SQL_MERGE = "merge into sales_daily_rollup r using (values (cast(? as date), " +
+            "cast(? as varchar(255)), cast(? as varchar(255)), cast(? as bigint), cast(? as float(53)))) " +
+            "d(sale_day, branch, sku, units, revenue) on r.sale_day = d.sale_day and r.branch = d.branch and r.sku = d.sku " +
+            "when matched then update set units = r.units + d.units, revenue = r.revenue + d.revenue, " +
+            "version = nextval('sales_rollup_version_seq') " +
+            "when not matched then insert (sale_day, branch, sku, units, revenue) values (d.sale_day, d.branch, d.sku, d.units, d.revenue)";
+
+    private final SalesDailyRollupRepository rollupRepository;
+    private final SaleRepository saleRepository;
+    private final SalesAggregatesCache aggregatesCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean postgreSql;
+    private final String upsertSql;
+
+    public SalesRollupService(SalesDailyRollupRepository rollupRepository,
+                              SaleRepository saleRepository,
+                              SalesAggregatesCache aggregatesCache,
+                              JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager) {
+        this.rollupRepository = rollupRepository;
+        this.saleRepository = saleRepository;
+        this.aggregatesCache = aggregatesCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.postgreSql = isPostgreSql(jdbcTemplate);
+        this.upsertSql = postgreSql ? UPSERT_SQL_POSTGRESQL : UPSERT_SQL_MERGE;
+    }
+
+    private static boolean isPostgreSql(JdbcTemplate jdbcTemplate) {
+        try {
+            String product = JdbcUtils.extractDatabaseMetaData(jdbcTemplate.getDataSource(), DatabaseMetaData::getDatabaseProductName);
+            return DatabaseDriver.fromProductName(product) == DatabaseDriver.POSTGRESQL;
+        } catch (MetaDataAccessException ex) {
+            throw new IllegalStateException("Cannot determine the database for the sales rollup", ex);
+        }
+    }
+
+    public void onCreated(Sale s) {
+        Contribution c = Contribution.of(s);
+        applyDelta(c.day(), c.branch(), c.sku(), c.units(), c.revenue());
+    }
+
+    /**
+     * Versión por lote de onCreated: suma primero por (día, sucursal, SKU) y aplica un upsert por grupo,
+     * en lotes JDBC sobre PostgreSQL, en lugar de una sentencia por venta.
+     */
+    public void onCreatedAll(Collection<Sale> sales) {
+        Map<Group, Contribution> totals = new LinkedHashMap<>();
+        for (Sale s : sales) {
+            Contribution c = Contribution.of(s);
+            totals.merge(new Group(c.day(), c.branch(), c.sku()), c, Contribution::plus);
+        }
+        if (totals.isEmpty()) return;
+
+        if (!postgreSql) {
+            // a failed MERGE inside a batch cannot be retried alone, so H2 upserts group by group
+            totals.values().forEach(c -> upsert(c.day(), c.branch(), c.sku(), c.units(), c.revenue()));
+            return;
+        }
+        jdbcTemplate.batchUpdate(upsertSql, new ArrayList<>(totals.values()), UPSERT_BATCH_SIZE, (ps, c) -> {
+            ps.setObject(1, c.day());
+            ps.setString(2, c.branch());
+            ps.setString(3, c.sku());
+            ps.setLong(4, c.units());
+            ps.setDouble(5, c.revenue());
+        });
+    }
+
+    public void onDeleted(Sale s) {
+        Contribution c = Contribution.of(s);
+        applyDelta(c.day(), c.branch(), c.sku(), -c.units(), -c.revenue());
+    }
+
+    /**
+     * Mueve los totales de una venta editada: si cambia día, sucursal o SKU se resta de la fila vieja
+     * y se suma a la nueva; si no, solo se aplica la diferencia.
+     */
+    public void onUpdated(Contribution before, Sale after) {
+        Contribution now = Contribution.of(after);
+        if (before.sameGroup(now)) {
+            applyDelta(now.day(), now.branch(), now.sku(), now.units() - before.units(), now.revenue() - before.revenue());
+        } else {
+            applyDelta(before.day(), before.branch(), before.sku(), -before.units(), -before.revenue());
+            applyDelta(now.day(), now.branch(), now.sku(), now.units(), now.revenue());
+        }
+    }
+
+    private void applyDelta(LocalDate day, String branch, String sku, long units, double revenue) {
+        if (units == 0 && revenue == 0.0) return;
+        upsert(day, branch, sku, units, revenue);
+    }
+
+    private void upsert(LocalDate day, String branch, String sku, long units, double revenue) {
+        try {
+            jdbcTemplate.update(upsertSql, day, branch, sku, units, revenue);
+        } catch (DuplicateKeyException ex) {
+            if (postgreSql) throw ex;
+            // H2: a concurrent first insert of the group shows up as a duplicate once it commits; the row is
+            // visible now, so the second MERGE takes the update branch
+            jdbcTemplate.update(upsertSql, day, branch, sku, units, revenue);
+        }
+    }
+
+    public List<SalesGroupRow> sumBySkuAndBranch(LocalDate from, LocalDate to, String branch) {
+        if (branch == null || branch.isBlank()) {
+            return rollupRepository.sumBySkuAndBranch(from, to);
+        }
+        return rollupRepository.sumBySkuAndBranchForBranch(from, to, branch);
+    }
+
+    public List<String> branchesWithSales(LocalDate from, LocalDate to) {
+        return rollupRepository.findBranchesWithSales(from, to);
+    }
+
+    /**
+     * Versión de los datos de ventas en [from, to] (días UTC) para la sucursal, o todas si es null:
+     * cambia con cada venta creada, editada o borrada en ese rango (ver migración V4).
+     */
+    public String dataVersion(LocalDate from, LocalDate to, String branch) {
+        Map<String, Object> row = branch == null || branch.isBlank()
+                ? jdbcTemplate.queryForMap("select count(*) as n, max(version) as v from sales_daily_rollup "
+                + "where sale_day between ? and ?", from, to)
+                : jdbcTemplate.queryForMap("select count(*) as n, max(version) as v from sales_daily_rollup "
+                + "where sale_day between ? and ? and branch = ?", from, to, branch);
+        Object max = row.get("v");
+        return row.get("n") + "-" + (max != null ? max : 0);
+    }
+
+    /**
+     * Recalcula el rollup desde la tabla sales, un día por transacción, y reporta las diferencias.
+     * Con repair=true corrige las filas que no coinciden. Sin fechas usa el rango completo de ventas.
+     */
+    public RollupReconcileResponse reconcile(LocalDate from, LocalDate to, boolean repair) {
+        if (from == null) {
+            Instant first = saleRepository.findFirstSoldAt();
+            from = first != null ? dayOf(first) : LocalDate.now(ZoneOffset.UTC);
+        }
+        if (to == null) {
+            Instant last = saleRepository.findLastSoldAt();
+            to = last != null ? dayOf(last) : LocalDate.now(ZoneOffset.UTC);
+        }
+
+        List<RollupDriftDTO> drifts = new ArrayList<>();
+        long driftCount = 0;
+        long groupsChecked = 0;
+        int days = 0;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            final LocalDate d = day;
+            DayResult result = transactionTemplate.execute(status -> reconcileDay(d, repair));
+            days++;
+            groupsChecked += result.groups();
+            driftCount += result.drifts().size();
+            for (RollupDriftDTO drift : result.drifts()) {
+                if (drifts.size() < MAX_REPORTED_DRIFTS) drifts.add(drift);
+            }
+        }
+        if (driftCount > 0) {
+            if (repair) {
+                // cached aggregates may have been read from the drifted rows
+                aggregatesCache.clear();
+            }
+            log.warn("Rollup reconcile {} to {} found {} drifted groups (repair={})", from, to, driftCount, repair);
+        } else {
+            log.info("Rollup reconcile {} to {}: no drift in {} groups", from, to, groupsChecked);
+        }
+
+        return RollupReconcileResponse.builder()
+                .from(from)
+                .to(to)
+                .daysChecked(days)
+                .groupsChecked(groupsChecked)
+                .driftCount(driftCount)
+                .repaired(repair)
+                .drifts(drifts)
+                .build();
+    }
+
+    private DayResult reconcileDay(LocalDate day, boolean repair) {
+        Instant start = day.atStartOfDay().toInstant(ZoneOffset.UTC);
+        Instant end = day.plusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC);
+
+        Map<String, SalesGroupRow> expected = new HashMap<>();
+        for (SalesGroupRow row : saleRepository.sumBySkuAndBranchUntil(start, end)) {
+            expected.put(row.getBranch() + "|" + row.getSku(), row);
+        }
+        Map<String, SalesDailyRollup> actual = new HashMap<>();
+        for (SalesDailyRollup r : rollupRepository.findBySaleDay(day)) {
+            actual.put(r.getBranch() + "|" + r.getSku(), r);
+        }
+
+        Set<String> keys = new HashSet<>(expected.keySet());
+        keys.addAll(actual.keySet());
+        List<RollupDriftDTO> drifts = new ArrayList<>();
+        for (String key : keys) {
+            SalesGroupRow e = expected.get(key);
+            SalesDailyRollup a = actual.get(key);
+            long eu = e != null ? e.getUnits() : 0;
+            double er = e != null ? e.getRevenue() : 0.0;
+            long au = a != null ? a.getUnits() : 0;
+            double ar = a != null ? a.getRevenue() : 0.0;
+            if (eu == au && sameRevenue(er, ar)) continue;
+
+            drifts.add(RollupDriftDTO.builder()
+                    .day(day)
+                    .branch(e != null ? e.getBranch() : a.getBranch())
+                    .sku(e != null ? e.getSku() : a.getSku())
+                    .expectedUnits(eu)
+                    .actualUnits(au)
+                    .expectedRevenue(er)
+                    .actualRevenue(ar)
+                    .build());
+
+            if (repair) {
+                if (e == null) {
+                    rollupRepository.delete(a);
+                } else if (a == null) {
+                    rollupRepository.save(new SalesDailyRollup(day, e.getBranch(), e.getSku(), eu, er));
+                } else {
+                    rollupRepository.setTotals(day, a.getBranch(), a.getSku(), eu, er);
+                }
+            }
+        }
+        return new DayResult(keys.size(), drifts);
+    }
+
+    private static boolean sameRevenue(double a, double b) {
+        // totals built by incremental +/- accumulate rounding, compare with a small tolerance
+        return Math.abs(a - b) <= 1e-6 * Math.max(1.0, Math.abs(a));
+    }
+
+    static LocalDate dayOf(Instant instant) {
+        return LocalDate.ofInstant(instant, ZoneOffset.UTC);
+    }
+
+    private record Group(LocalDate day, String branch, String sku) {
+    }
+
+    private record DayResult(int groups, List<RollupDriftDTO> drifts) {
+    }
+
+    /**
+     * Lo que una venta aporta al rollup; se captura antes de editarla.
+     */
+    public record Contribution(LocalDate day, String branch, String sku, long units, double revenue) {
+
+        public static Contribution of(Sale s) {
+            return new Contribution(dayOf(s.getSoldAt()), s.getBranch(), s.getSku(), s.getUnits(), s.getUnits() * s.getPrice());
+        }
+
+        Contribution plus(Contribution other) {
+            return new Contribution(day, branch, sku, units + other.units, revenue + other.revenue);
+        }
+
+        boolean sameGroup(Contribution other) {
+            return day.equals(other.day) && branch.equals(other.branch) && sku.equals(other.sku);
+        }
+    }
+}
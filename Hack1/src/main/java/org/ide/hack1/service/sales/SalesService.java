@@ -1,5 +1,6 @@
 package org.ide.hack1.service.sales;
 
+import org.ide.hack1.dto.sales.SaleCursorPage;
 import org.ide.hack1.dto.sales.SaleRequest;
 import org.ide.hack1.dto.sales.SaleResponse;
 import org.ide.hack1.entity.Sale;
@@ -7,25 +8,33 @@ import org.ide.hack1.exception.ForbiddenException;
 import org.ide.hack1.exception.NotFoundException;
 import org.ide.hack1.repository.SaleRepository;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Service
 public class SalesService {
 
+    private static final Sort STABLE_ORDER = Sort.by(Sort.Order.asc("soldAt"), Sort.Order.asc("id"));
+
     private final SaleRepository saleRepository;
+    private final SalesRollupService salesRollupService;
+    private final SalesAggregatesCache aggregatesCache;
 
-    public SalesService(SaleRepository saleRepository) {
+    public SalesService(SaleRepository saleRepository, SalesRollupService salesRollupService, SalesAggregatesCache aggregatesCache) {
         this.saleRepository = saleRepository;
+        this.salesRollupService = salesRollupService;
+        this.aggregatesCache = aggregatesCache;
     }
 
+    @Transactional
     public SaleResponse createSale(SaleRequest req, String username, String role, String userBranch) {
         // If role is BRANCH, ensure branch matches user's branch
         if ("BRANCH".equals(role) && (req.getBranch() == null || !req.getBranch().equals(userBranch))) {
@@ -41,45 +50,111 @@ public class SalesService {
         s.setCreatedBy(username);
 
         Sale saved = saleRepository.save(s);
+        salesRollupService.onCreated(saved);
+        aggregatesCache.invalidateOnCommit(saved.getSoldAt(), saved.getBranch());
         return toDto(saved);
     }
 
+    @Transactional(readOnly = true)
     public SaleResponse getSale(String id, String role, String userBranch) {
-        Optional<Sale> o = saleRepository.findById(id);
+        Optional<SaleResponse> o = saleRepository.findResponseById(id);
         if (o.isEmpty()) throw new NotFoundException("sale not found");
-        Sale s = o.get();
+        SaleResponse s = o.get();
         if ("BRANCH".equals(role) && !s.getBranch().equals(userBranch)) {
             throw new ForbiddenException("forbidden");
         }
-        return toDto(s);
+        return s;
     }
 
+    /**
+     * Lectura por proyección: las filas van directo a SaleResponse, sin entidades gestionadas ni dirty-checking.
+     */
+    @Transactional(readOnly = true)
     public Page<SaleResponse> listSales(Instant from, Instant to, String branch, Pageable pageable, String role, String userBranch) {
         // enforce branch for BRANCH users
         if ("BRANCH".equals(role)) {
             branch = userBranch;
         }
 
-        List<Sale> sales;
+        Pageable sorted = withStableOrder(pageable);
+        if (branch == null || branch.isBlank()) {
+            return saleRepository.findBySoldAtBetween(from, to, sorted);
+        }
+        return saleRepository.findBySoldAtBetweenAndBranch(from, to, branch, sorted);
+    }
+
+    /**
+     * Same as listSales but without the count(*) query: the response only says whether there is a next page.
+     */
+    @Transactional(readOnly = true)
+    public Slice<SaleResponse> listSalesSlice(Instant from, Instant to, String branch, Pageable pageable, String role, String userBranch) {
+        if ("BRANCH".equals(role)) {
+            branch = userBranch;
+        }
+
+        Pageable sorted = withStableOrder(pageable);
         if (branch == null || branch.isBlank()) {
-            sales = saleRepository.findBySoldAtBetween(from, to);
-            // simple manual paging
-            int start = (int) pageable.getOffset();
-            int end = Math.min((start + pageable.getPageSize()), sales.size());
-            List<Sale> pageList = start <= end ? sales.subList(start, end) : List.of();
-            List<SaleResponse> dtoList = pageList.stream().map(this::toDto).collect(Collectors.toList());
-            return new PageImpl<>(dtoList, pageable, sales.size());
+            return saleRepository.findSliceBySoldAtBetween(from, to, sorted);
+        }
+        return saleRepository.findSliceBySoldAtBetweenAndBranch(from, to, branch, sorted);
+    }
+
+    /**
+     * Keyset mode: reads the page after the cursor with a seek predicate on (soldAt, id) instead of OFFSET,
+     * and size + 1 rows to know if there is a next page, so no count(*) is needed.
+     * A blank cursor returns the first page.
+     */
+    @Transactional(readOnly = true)
+    public SaleCursorPage listSalesAfter(Instant from, Instant to, String branch, String cursor, int size, String role, String userBranch) {
+        if ("BRANCH".equals(role)) {
+            branch = userBranch;
+        }
+
+        Pageable limit = PageRequest.of(0, size + 1);
+        SaleCursor after = cursor == null || cursor.isBlank() ? null : SaleCursor.decode(cursor);
+        List<SaleResponse> rows;
+        if (branch == null || branch.isBlank()) {
+            rows = after == null
+                    ? saleRepository.findFirstKeysetPage(from, to, limit)
+                    : saleRepository.findKeysetPageAfter(from, to, after.soldAt(), after.id(), limit);
         } else {
-            Page<Sale> page = saleRepository.findBySoldAtBetweenAndBranch(from, to, branch, pageable);
-            return page.map(this::toDto);
+            rows = after == null
+                    ? saleRepository.findFirstKeysetPageForBranch(from, to, branch, limit)
+                    : saleRepository.findKeysetPageAfterForBranch(from, to, branch, after.soldAt(), after.id(), limit);
+        }
+
+        boolean hasNext = rows.size() > size;
+        List<SaleResponse> page = hasNext ? rows.subList(0, size) : rows;
+        String next = null;
+        if (hasNext) {
+            SaleResponse last = page.get(page.size() - 1);
+            next = new SaleCursor(last.getSoldAt(), last.getId()).encode();
+        }
+        return SaleCursorPage.builder()
+                .content(List.copyOf(page))
+                .size(page.size())
+                .hasNext(hasNext)
+                .nextCursor(next)
+                .build();
+    }
+
+    // pages need a total order, otherwise rows can repeat or go missing between pages
+    private static Pageable withStableOrder(Pageable pageable) {
+        if (pageable.getSort().isSorted()) {
+            return pageable;
         }
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), STABLE_ORDER);
     }
 
+    @Transactional
     public SaleResponse updateSale(String id, SaleRequest req, String role, String userBranch) {
         Sale s = saleRepository.findById(id).orElseThrow(() -> new NotFoundException("sale not found"));
         if ("BRANCH".equals(role) && !s.getBranch().equals(userBranch)) {
             throw new ForbiddenException("forbidden");
         }
+        SalesRollupService.Contribution before = SalesRollupService.Contribution.of(s);
+        Instant oldSoldAt = s.getSoldAt();
+        String oldBranch = s.getBranch();
         // Update allowed fields
         s.setSku(req.getSku());
         s.setUnits(req.getUnits());
@@ -88,14 +163,22 @@ public class SalesService {
         s.setSoldAt(req.getSoldAt());
 
         Sale saved = saleRepository.save(s);
+        salesRollupService.onUpdated(before, saved);
+        aggregatesCache.invalidateOnCommit(oldSoldAt, oldBranch);
+        aggregatesCache.invalidateOnCommit(saved.getSoldAt(), saved.getBranch());
         return toDto(saved);
     }
 
+    @Transactional
     public void deleteSale(String id, String role) {
         if (!"CENTRAL".equals(role)) {
             throw new ForbiddenException("only central can delete");
         }
-        saleRepository.deleteById(id);
+        saleRepository.findById(id).ifPresent(s -> {
+            salesRollupService.onDeleted(s);
+            aggregatesCache.invalidateOnCommit(s.getSoldAt(), s.getBranch());
+            saleRepository.delete(s);
+        });
     }
 
     private SaleResponse toDto(Sale s) {
@@ -1,4 +1,99 @@
 package org.ide.hack1.util;
 
-public class IdGenerator {
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * IDs de 64 bits ordenados por tiempo (estilo Snowflake): 41 bits de milisegundos desde 2024-01-01,
+ * 10 bits de nodo y 12 de secuencia, en 13 caracteres Crockford base32 de ancho fijo, así que el
+ * orden del texto es el orden de creación. Sin locks: el estado avanza con CAS.
+ */
+public final class IdGenerator {
+
+    private static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final char[] ALPHABET = "0123456789abcdefghjkmnpqrstvwxyz".toCharArray();
+    private static final int ENCODED_LENGTH = 13;
+
+    // (millis since EPOCH << SEQUENCE_BITS) | sequence of the last id handed out
+    private static final AtomicLong state = new AtomicLong();
+    // random until configured, so two unconfigured nodes rarely collide
+    private static volatile long nodeId = new SecureRandom().nextInt(MAX_NODE_ID + 1);
+
+    private IdGenerator() {
+    }
+
+    /**
+     * Fija el id de nodo (0..1023); cada instancia que escribe en la misma base necesita uno distinto.
+     */
+    public static void setNodeId(int id) {
+        if (id < 0 || id > MAX_NODE_ID) {
+            throw new IllegalArgumentException("node id must be between 0 and " + MAX_NODE_ID);
+        }
+        nodeId = id;
+    }
+
+    public static int nodeId() {
+        return (int) nodeId;
+    }
+
+    public static String newId(String prefix) {
+        return prefix + encode(nextLong());
+    }
+
+    public static long nextLong() {
+        while (true) {
+            long prev = state.get();
+            long candidate = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+            // same millisecond, sequence exhausted or clock moved back: keep counting up from the last value,
+            // which borrows from the next millisecond instead of ever repeating or going backwards
+            if (candidate <= prev) {
+                candidate = prev + 1;
+            }
+            if (state.compareAndSet(prev, candidate)) {
+                long millis = candidate >>> SEQUENCE_BITS;
+                long sequence = candidate & ((1L << SEQUENCE_BITS) - 1);
+                return (millis << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+            }
+        }
+    }
+
+    /**
+     * Instante de creación codificado en un id (con o sin prefijo).
+     */
+    public static Instant timestampOf(String id) {
+        long value = decode(id.substring(id.length() - ENCODED_LENGTH));
+        return Instant.ofEpochMilli((value >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS);
+    }
+
+    static String encode(long value) {
+        char[] out = new char[ENCODED_LENGTH];
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            out[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+        return new String(out);
+    }
+
+    static long decode(String encoded) {
+        long value = 0;
+        for (int i = 0; i < encoded.length(); i++) {
+            int digit = indexOf(encoded.charAt(i));
+            if (digit < 0) {
+                throw new IllegalArgumentException("invalid id: " + encoded);
+            }
+            value = (value << 5) | digit;
+        }
+        return value;
+    }
+
+    private static int indexOf(char c) {
+        for (int i = 0; i < ALPHABET.length; i++) {
+            if (ALPHABET[i] == c) return i;
+        }
+        return -1;
+    }
 }
@@ -0,0 +1,56 @@
+package org.ide.hack1.util;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket: {@code permitsPerSecond} tokens por segundo con ráfagas de hasta {@code burst}.
+ * Las reservas pueden dejar el saldo en negativo, así los que llegan después esperan detrás de ellas.
+ */
+public final class TokenBucket {
+
+    private final double capacity;
+    private final double nanosPerToken;
+    private final LongSupplier nanoClock;
+
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    TokenBucket(double permitsPerSecond, int burst, LongSupplier nanoClock) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive and burst at least 1");
+        }
+        this.capacity = burst;
+        this.nanosPerToken = 1_000_000_000d / permitsPerSecond;
+        this.nanoClock = nanoClock;
+        this.tokens = burst;
+        this.lastRefill = nanoClock.getAsLong();
+    }
+
+    /**
+     * Reserva un token y devuelve cuántos nanos hay que esperar antes de usarlo, o -1 (sin consumir nada)
+     * si la espera superaría {@code maxWaitNanos}.
+     */
+    public synchronized long reserve(long maxWaitNanos) {
+        refill();
+        long wait = tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) * nanosPerToken);
+        if (wait > maxWaitNanos) {
+            return -1;
+        }
+        tokens -= 1;
+        return wait;
+    }
+
+    public boolean tryAcquire() {
+        return reserve(0) == 0;
+    }
+
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) / nanosPerToken);
+        lastRefill = now;
+    }
+}
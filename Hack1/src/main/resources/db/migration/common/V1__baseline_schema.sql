@@ -0,0 +1,56 @@
+-- Baseline schema (H2 in PostgreSQL mode and PostgreSQL)
+
+create table if not exists users (
+    id          varchar(64)              not null,
+    username    varchar(50)              not null unique,
+    email       varchar(120)             not null unique,
+    password    varchar(255)             not null,
+    role        varchar(20)              not null,
+    branch      varchar(255),
+    created_at  timestamp(6) with time zone not null,
+    primary key (id)
+);
+
+create table if not exists sales (
+    id          varchar(64)              not null,
+    sku         varchar(255)             not null,
+    units       integer                  not null,
+    price       float(53)                not null,
+    branch      varchar(255)             not null,
+    sold_at     timestamp(6) with time zone not null,
+    created_by  varchar(255)             not null,
+    created_at  timestamp(6) with time zone not null,
+    primary key (id)
+);
+
+create table if not exists report_requests (
+    id            varchar(64)              not null,
+    from_date     date,
+    to_date       date,
+    branch        varchar(255),
+    email_to      varchar(255)             not null,
+    requested_by  varchar(255),
+    status        varchar(20)              not null,
+    requested_at  timestamp(6) with time zone not null,
+    completed_at  timestamp(6) with time zone,
+    summary_text  text,
+    error_message text,
+    primary key (id)
+);
+
+create table if not exists sales_daily_rollup (
+    sale_day  date         not null,
+    branch    varchar(255) not null,
+    sku       varchar(255) not null,
+    units     bigint       not null,
+    revenue   float(53)    not null,
+    primary key (sale_day, branch, sku)
+);
+
+-- findBySoldAtBetween / keyset pages: range on sold_at, ordered by (sold_at, id)
+create index if not exists idx_sales_sold_at_id on sales (sold_at, id);
+-- findBySoldAtBetweenAndBranch / findByBranch: equality on branch, then range + order on sold_at
+create index if not exists idx_sales_branch_sold_at_id on sales (branch, sold_at, id);
+
+create index if not exists idx_report_requests_requested_by on report_requests (requested_by);
+create index if not exists idx_report_requests_status on report_requests (status);
@@ -0,0 +1,7 @@
+-- report_requests doubles as the durable job queue: a PROCESSING row is pending until a worker
+-- claims it (FOR UPDATE SKIP LOCKED) and sets a lease; an expired lease makes it claimable again.
+alter table report_requests add column if not exists lease_owner varchar(64);
+alter table report_requests add column if not exists lease_expires_at timestamp(6) with time zone;
+alter table report_requests add column if not exists attempts integer default 0 not null;
+
+create index if not exists idx_report_requests_status_lease on report_requests (status, lease_expires_at);
@@ -0,0 +1,19 @@
+-- Every write to a sales_daily_rollup row takes a fresh value from one global sequence, so
+-- (row count, max(version)) over a date range changes whenever any sale in that range is
+-- created, edited, deleted or repaired. That pair is the data version of a stored summary.
+create sequence if not exists sales_rollup_version_seq;
+alter table sales_daily_rollup add column if not exists version bigint default nextval('sales_rollup_version_seq') not null;
+
+-- Summaries of closed periods, reused while the data version of their range is unchanged.
+-- branch_key is '' for all branches.
+create table if not exists report_summaries (
+    from_date    date                        not null,
+    to_date      date                        not null,
+    branch_key   varchar(255)                not null,
+    data_version varchar(64)                 not null,
+    summary_text text                        not null,
+    created_at   timestamp(6) with time zone not null,
+    primary key (from_date, to_date, branch_key)
+);
+
+alter table report_requests add column if not exists summary_source varchar(20);
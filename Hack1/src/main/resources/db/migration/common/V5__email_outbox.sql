@@ -0,0 +1,22 @@
+-- Report emails are inserted in the same transaction that marks the report DONE and delivered later
+-- by EmailOutboxDispatcher. A PENDING row is due at next_attempt_at; a dispatcher claims it
+-- (FOR UPDATE SKIP LOCKED), sets lease_owner and pushes next_attempt_at out by its lease, so a row
+-- left behind by a dead node becomes due again.
+create table if not exists email_outbox (
+    id                varchar(64)                 not null,
+    report_request_id varchar(64),
+    recipient         varchar(255)                not null,
+    subject           varchar(255)                not null,
+    body              text                        not null,
+    status            varchar(20)                 not null,
+    attempts          integer default 0           not null,
+    next_attempt_at   timestamp(6) with time zone not null,
+    lease_owner       varchar(64),
+    last_error        text,
+    created_at        timestamp(6) with time zone not null,
+    sent_at           timestamp(6) with time zone,
+    primary key (id)
+);
+
+create index if not exists idx_email_outbox_status_next on email_outbox (status, next_attempt_at);
+create index if not exists idx_email_outbox_report on email_outbox (report_request_id);
@@ -0,0 +1,8 @@
+-- Cluster-wide locks for scheduled jobs: a node runs the job only while it holds the row, and an
+-- unreleased lock (the node died) lapses at locked_until.
+create table if not exists scheduler_locks (
+    name         varchar(64)                 not null,
+    locked_by    varchar(64)                 not null,
+    locked_until timestamp(6) with time zone not null,
+    primary key (name)
+);
@@ -0,0 +1,3 @@
+-- idx_report_requests_status (V1) is a prefix of idx_report_requests_status_lease (V3), which already
+-- serves findByStatus and the queue claim; keeping both only slows every status update.
+drop index if exists idx_report_requests_status;
@@ -0,0 +1,5 @@
+-- A stored summary keeps the aggregates it was written from, so a request for the same data version
+-- never aggregates the sales again. llm_summary = false marks the local fallback text written while the
+-- LLM was unavailable; it is served as is but replaced as soon as the LLM answers for that range.
+alter table report_summaries add column if not exists aggregates_json text;
+alter table report_summaries add column if not exists llm_summary boolean default true not null;
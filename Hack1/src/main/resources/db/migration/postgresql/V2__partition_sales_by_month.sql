@@ -0,0 +1,54 @@
+-- PostgreSQL only: turn sales into a table range-partitioned by month on sold_at.
+-- A partitioned table's primary key must include the partition key, hence (id, sold_at);
+-- ids stay unique because they come from IdGenerator.
+-- Later months are created ahead of time by SalesPartitionMaintenance.
+
+alter table sales rename to sales_unpartitioned;
+alter table sales_unpartitioned rename constraint sales_pkey to sales_unpartitioned_pkey;
+alter index idx_sales_sold_at_id rename to idx_sales_unpartitioned_sold_at_id;
+alter index idx_sales_branch_sold_at_id rename to idx_sales_unpartitioned_branch_sold_at_id;
+
+create table sales (
+    id          varchar(64)              not null,
+    sku         varchar(255)             not null,
+    units       integer                  not null,
+    price       float(53)                not null,
+    branch      varchar(255)             not null,
+    sold_at     timestamp(6) with time zone not null,
+    created_by  varchar(255)             not null,
+    created_at  timestamp(6) with time zone not null,
+    primary key (id, sold_at)
+) partition by range (sold_at);
+
+-- created on the parent, so every partition gets its own copy
+create index idx_sales_sold_at_id on sales (sold_at, id);
+create index idx_sales_branch_sold_at_id on sales (branch, sold_at, id);
+
+-- safety net for rows outside the created months; the maintenance job keeps it empty
+create table sales_default partition of sales default;
+
+do $$
+declare
+    month_start date;
+    last_month  date;
+begin
+    select coalesce(date_trunc('month', min(sold_at) at time zone 'UTC')::date,
+                    date_trunc('month', now() at time zone 'UTC')::date)
+      into month_start
+      from sales_unpartitioned;
+    last_month := (date_trunc('month', now() at time zone 'UTC') + interval '3 months')::date;
+    while month_start <= last_month loop
+        execute format('create table %I partition of sales for values from (%L) to (%L)',
+                       'sales_' || to_char(month_start, 'YYYY_MM'),
+                       to_char(month_start, 'YYYY-MM-DD') || ' 00:00:00+00',
+                       to_char((month_start + interval '1 month')::date, 'YYYY-MM-DD') || ' 00:00:00+00');
+        month_start := (month_start + interval '1 month')::date;
+    end loop;
+end $$;
+
+insert into sales (id, sku, units, price, branch, sold_at, created_by, created_at)
+select id, sku, units, price, branch, sold_at, created_by, created_at from sales_unpartitioned;
+
+drop table sales_unpartitioned;
+
+create schema if not exists sales_archive;
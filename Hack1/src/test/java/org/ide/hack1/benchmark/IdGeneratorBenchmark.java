@@ -0,0 +1,84 @@
+package org.ide.hack1.benchmark;
+
+import org.ide.hack1.util.IdGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserciones por segundo en una tabla con PK varchar usando ids aleatorios (UUID, como antes)
+ * contra ids ordenados por tiempo de IdGenerator, sobre H2 en archivo. Al terminar cada trial imprime
+ * el espacio en disco de la tabla (DISK_SPACE_USED incluye la PK). En PostgreSQL la comparación
+ * equivalente es pg_relation_size('sales_pkey').
+ * Ejecutar con:
+ *   mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ *   java -cp target/test-classes:target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main IdGeneratorBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+    private static final int BATCH = 500;
+
+    @Param({"uuid", "ordered"})
+    public String keys;
+
+    private Path dir;
+    private Connection connection;
+    private PreparedStatement insert;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("idbench");
+        connection = DriverManager.getConnection("jdbc:h2:file:" + dir.resolve("db") + ";MODE=PostgreSQL", "sa", "");
+        try (Statement st = connection.createStatement()) {
+            st.execute("create table sales (id varchar(64) primary key, sku varchar(255), units integer)");
+        }
+        connection.setAutoCommit(false);
+        insert = connection.prepareStatement("insert into sales (id, sku, units) values (?, ?, ?)");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        try (Statement st = connection.createStatement()) {
+            st.execute("checkpoint sync");
+            try (ResultSet rs = st.executeQuery("select count(*), disk_space_used('SALES') from sales")) {
+                rs.next();
+                System.out.printf("%n[%s] rows=%d disk bytes=%d (%.1f bytes/row)%n", keys, rs.getLong(1), rs.getLong(2),
+                        rs.getLong(2) / (double) rs.getLong(1));
+            }
+        }
+        connection.close();
+        try (var files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void insertBatch() throws SQLException {
+        boolean ordered = "ordered".equals(keys);
+        for (int i = 0; i < BATCH; i++) {
+            insert.setString(1, ordered ? IdGenerator.newId("s_") : "s_" + UUID.randomUUID().toString().replace("-", ""));
+            insert.setString(2, "OREO_CLASSIC");
+            insert.setInt(3, i);
+            insert.addBatch();
+        }
+        insert.executeBatch();
+        connection.commit();
+    }
+}
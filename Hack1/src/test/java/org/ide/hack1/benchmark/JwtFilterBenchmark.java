@@ -0,0 +1,84 @@
+package org.ide.hack1.benchmark;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import org.ide.hack1.entity.User;
+import org.ide.hack1.security.jwt.JwtFilter;
+import org.ide.hack1.security.jwt.JwtProvider;
+import org.ide.hack1.security.model.Role;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo por request de autenticar un Bearer token: el filtro anterior (validateToken más tres getters,
+ * cuatro verify), JwtFilter sin caché (un verify) y JwtFilter con caché (digest SHA-256 y lookup).
+ * Ejecutar con:
+ *   mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ *   java -cp target/test-classes:target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main JwtFilterBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtFilterBenchmark {
+
+    private static final String SECRET = "benchmark-secret-with-enough-length-for-hs256";
+
+    private String token;
+    private JWTVerifier legacyVerifier;
+    private JwtFilter uncachedFilter;
+    private JwtFilter cachedFilter;
+
+    @Setup
+    public void setUp() {
+        JwtProvider uncached = new JwtProvider(SECRET, 3600, 0);
+        JwtProvider cached = new JwtProvider(SECRET, 3600, 10_000);
+        User user = new User();
+        user.setUsername("ana");
+        user.setRole(Role.BRANCH);
+        user.setBranch("Miraflores");
+        token = cached.generateToken(user);
+
+        legacyVerifier = JWT.require(Algorithm.HMAC256(SECRET)).build();
+        uncachedFilter = new JwtFilter(uncached);
+        cachedFilter = new JwtFilter(cached);
+    }
+
+    @Benchmark
+    public Object legacyFourVerifications() {
+        // what JwtFilter did before: validateToken, then username, role and branch each re-verified the token
+        legacyVerifier.verify(token);
+        String username = legacyVerifier.verify(token).getSubject();
+        String role = legacyVerifier.verify(token).getClaim("role").asString();
+        String branch = legacyVerifier.verify(token).getClaim("branch").asString();
+        return username + role + branch;
+    }
+
+    @Benchmark
+    public Object filterVerifyOnce() throws Exception {
+        return authenticate(uncachedFilter);
+    }
+
+    @Benchmark
+    public Object filterCached() throws Exception {
+        return authenticate(cachedFilter);
+    }
+
+    // OncePerRequestFilter marks the request and MockFilterChain runs once, so both are new per call
+    private Object authenticate(JwtFilter filter) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/sales");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Object auth = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return auth;
+    }
+}
@@ -0,0 +1,206 @@
+package org.ide.hack1.benchmark;
+
+import com.sun.net.httpserver.HttpServer;
+import org.ide.hack1.Hack1Application;
+import org.ide.hack1.service.report.ReportJobWorker;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reportes por segundo que procesa ReportJobWorker según reports.queue.concurrency y el tipo de hilo.
+ * El LLM es un HttpServer local que tarda LLM_DELAY_MS y el correo un servidor SMTP mínimo que tarda
+ * SMTP_DELAY_MS en aceptar cada mensaje: casi todo el tiempo de un reporte es espera, como en producción.
+ * Un reporte cuenta al quedar DONE; su email sale después desde email_outbox y no entra en la medición.
+ * Ejecutar con:
+ *   mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ *   java -cp target/test-classes:target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main ReportPipelineBenchmark
+ * (@OperationsPerInvocation hace que ops/s sea directamente reportes/s).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 2, time = 10)
+@Fork(1)
+public class ReportPipelineBenchmark {
+
+    private static final int JOBS = 64;
+    private static final int LLM_DELAY_MS = 300;
+    private static final int SMTP_DELAY_MS = 100;
+
+    @Param({"4", "16", "64"})
+    public int concurrency;
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    private HttpServer llmServer;
+    private SlowSmtpServer smtpServer;
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbc;
+    private ReportJobWorker worker;
+    private int batch;
+
+    @Setup
+    public void setUp() throws IOException {
+        llmServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        // the stand-ins run on platform threads like a remote server would, never on the app's carriers
+        llmServer.setExecutor(Executors.newCachedThreadPool());
+        llmServer.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            sleep(LLM_DELAY_MS);
+            byte[] body = "{\"choices\":[{\"message\":{\"content\":\"Se vendieron 0 unidades en el periodo.\"}}]}"
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        llmServer.start();
+        smtpServer = new SlowSmtpServer();
+
+        SpringApplication app = new SpringApplication(Hack1Application.class);
+        context = app.run("--server.port=0", "--logging.level.root=WARN",
+                "--spring.datasource.url=jdbc:h2:mem:reportbench;DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+                "--GITHUB_TOKEN=bench", "--MODEL_ID=bench", "--llm.github.rate-limit.requests-per-second=0",
+                "--GITHUB_MODELS_URL=http://localhost:" + llmServer.getAddress().getPort() + "/",
+                "--spring.mail.host=localhost", "--spring.mail.port=" + smtpServer.port(),
+                "--spring.mail.properties.mail.smtp.auth=false",
+                "--spring.mail.properties.mail.smtp.starttls.enable=false",
+                "--reports.queue.concurrency=" + concurrency,
+                "--reports.queue.virtual-threads=" + virtualThreads,
+                "--reports.queue.llm-concurrency=" + concurrency,
+                "--reports.queue.mail-concurrency=" + concurrency,
+                "--reports.queue.poll-interval=1h");
+        jdbc = context.getBean(JdbcTemplate.class);
+        worker = context.getBean(ReportJobWorker.class);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        llmServer.stop(0);
+        smtpServer.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(JOBS)
+    public int processQueuedReports() throws InterruptedException {
+        String prefix = "req_bench_" + (batch++) + "_";
+        List<Object[]> rows = new ArrayList<>(JOBS);
+        Timestamp now = Timestamp.from(Instant.now());
+        for (int i = 0; i < JOBS; i++) {
+            rows.add(new Object[]{prefix + i, "bench@example.com", now});
+        }
+        jdbc.batchUpdate("insert into report_requests (id, from_date, to_date, email_to, status, requested_at, attempts) "
+                + "values (?, date '2025-09-01', date '2025-09-07', ?, 'PROCESSING', ?, 0)", rows);
+        worker.wake();
+        // each finished job wakes the worker again, so the queue drains without the periodic poll
+        Integer pending;
+        do {
+            TimeUnit.MILLISECONDS.sleep(20);
+            pending = jdbc.queryForObject("select count(*) from report_requests where id like ? and status = 'PROCESSING'",
+                    Integer.class, prefix + "%");
+        } while (pending != null && pending > 0);
+        return JOBS;
+    }
+
+    private static void sleep(int millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Lo justo de SMTP para JavaMail: acepta cualquier remitente/destinatario y tarda en confirmar DATA.
+     */
+    private static final class SlowSmtpServer implements AutoCloseable {
+
+        private final ServerSocket socket;
+        private final ExecutorService sessions = Executors.newCachedThreadPool();
+
+        SlowSmtpServer() throws IOException {
+            socket = new ServerSocket(0);
+            Thread.ofPlatform().daemon().start(() -> {
+                while (!socket.isClosed()) {
+                    try {
+                        Socket client = socket.accept();
+                        sessions.execute(() -> session(client));
+                    } catch (IOException ex) {
+                        return;
+                    }
+                }
+            });
+        }
+
+        int port() {
+            return socket.getLocalPort();
+        }
+
+        private void session(Socket client) {
+            try (client;
+                 BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+                 PrintWriter out = new PrintWriter(client.getOutputStream(), true, StandardCharsets.US_ASCII)) {
+                out.print("220 bench\r\n");
+                out.flush();
+                String line;
+                boolean data = false;
+                while ((line = in.readLine()) != null) {
+                    if (data) {
+                        if (line.equals(".")) {
+                            data = false;
+                            sleep(SMTP_DELAY_MS);
+                            out.print("250 queued\r\n");
+                            out.flush();
+                        }
+                        continue;
+                    }
+                    String cmd = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                    switch (cmd) {
+                        case "DATA" -> {
+                            data = true;
+                            out.print("354 go ahead\r\n");
+                        }
+                        case "QUIT" -> {
+                            out.print("221 bye\r\n");
+                            out.flush();
+                            return;
+                        }
+                        default -> out.print("250 ok\r\n");
+                    }
+                    out.flush();
+                }
+            } catch (IOException ex) {
+                // client went away
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+            sessions.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.ide.hack1.benchmark;
+
+import org.ide.hack1.dto.summary.SalesAggregatesDTO;
+import org.ide.hack1.entity.Sale;
+import org.ide.hack1.service.sales.SalesAggregator;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compara el cálculo anterior (cuatro pasadas con Collectors.groupingBy) contra SalesAggregator.
+ * Ejecutar con:
+ *   mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ *   java -cp target/test-classes:target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main SalesAggregationBenchmark -prof gc
+ * (-prof gc muestra los bytes asignados por operación en gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SalesAggregationBenchmark {
+
+    @Param({"10000", "200000"})
+    public int salesCount;
+
+    private List<Sale> sales;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        Instant now = Instant.parse("2025-09-01T00:00:00Z");
+        sales = new ArrayList<>(salesCount);
+        for (int i = 0; i < salesCount; i++) {
+            Sale s = new Sale();
+            s.setId("s" + i);
+            s.setSku("SKU_" + random.nextInt(200));
+            s.setBranch("Branch_" + random.nextInt(20));
+            s.setUnits(1 + random.nextInt(20));
+            s.setPrice(0.5 + random.nextInt(500) / 100.0);
+            s.setSoldAt(now.plusSeconds(i));
+            sales.add(s);
+        }
+    }
+
+    @Benchmark
+    public SalesAggregatesDTO fourPassGroupingBy() {
+        long totalUnits = sales.stream().mapToLong(Sale::getUnits).sum();
+        double totalRevenue = sales.stream().mapToDouble(s -> s.getUnits() * s.getPrice()).sum();
+        Map<String, Long> unitsBySku = sales.stream().collect(Collectors.groupingBy(Sale::getSku, Collectors.summingLong(Sale::getUnits)));
+        String topSku = unitsBySku.entrySet().stream()
+                .max(Comparator.comparingLong(Map.Entry::getValue))
+                .map(Map.Entry::getKey)
+                .orElse(null);
+        Map<String, Double> revenueByBranch = sales.stream().collect(Collectors.groupingBy(Sale::getBranch, Collectors.summingDouble(s -> s.getUnits() * s.getPrice())));
+        String topBranch = revenueByBranch.entrySet().stream()
+                .max(Comparator.comparingDouble(Map.Entry::getValue))
+                .map(Map.Entry::getKey)
+                .orElse(null);
+        return new SalesAggregatesDTO(totalUnits, totalRevenue, topSku, topBranch, unitsBySku, revenueByBranch);
+    }
+
+    @Benchmark
+    public SalesAggregatesDTO singlePassAggregator() {
+        SalesAggregator aggregator = new SalesAggregator();
+        for (Sale s : sales) {
+            aggregator.accept(s);
+        }
+        return aggregator.result();
+    }
+
+    @Benchmark
+    public SalesAggregatesDTO singlePassCollector() {
+        return sales.stream().collect(SalesAggregator.collector());
+    }
+}
@@ -0,0 +1,85 @@
+package org.ide.hack1.benchmark;
+
+import org.ide.hack1.Hack1Application;
+import org.ide.hack1.dto.sales.SaleBatchResponse;
+import org.ide.hack1.dto.sales.SaleRequest;
+import org.ide.hack1.service.sales.SalesBatchService;
+import org.ide.hack1.service.sales.SalesService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filas por segundo insertadas con createSale (una transacción por venta, como POST /sales)
+ * contra SalesBatchService (POST /sales/batch) sobre H2 en memoria.
+ * Ejecutar con:
+ *   mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ *   java -cp target/test-classes:target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main SalesIngestBenchmark
+ * (@OperationsPerInvocation hace que ops/s sea directamente filas/s).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SalesIngestBenchmark {
+
+    private static final int ROWS = 1000;
+
+    private ConfigurableApplicationContext context;
+    private SalesService salesService;
+    private SalesBatchService salesBatchService;
+    private List<SaleRequest> requests;
+
+    @Setup
+    public void setUp() {
+        SpringApplication app = new SpringApplication(Hack1Application.class);
+        // SecurityConfig needs the servlet stack, so start it on a random port
+        context = app.run("--server.port=0", "--spring.datasource.url=jdbc:h2:mem:ingestbench;DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+                "--logging.level.root=WARN");
+        salesService = context.getBean(SalesService.class);
+        salesBatchService = context.getBean(SalesBatchService.class);
+
+        Random random = new Random(42);
+        Instant base = Instant.parse("2025-09-01T00:00:00Z");
+        requests = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            requests.add(SaleRequest.builder()
+                    .sku("SKU_" + random.nextInt(200))
+                    .branch("Branch_" + random.nextInt(20))
+                    .units(1 + random.nextInt(20))
+                    .price(0.5 + random.nextInt(500) / 100.0)
+                    .soldAt(base.plusSeconds(random.nextInt(30 * 86400)))
+                    .build());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int singleSaleCreates() {
+        int created = 0;
+        for (SaleRequest req : requests) {
+            salesService.createSale(req, "bench", "CENTRAL", null);
+            created++;
+        }
+        return created;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public SaleBatchResponse batchCreate() {
+        return salesBatchService.createSales(requests, null, "bench", "CENTRAL", null);
+    }
+}
@@ -0,0 +1,236 @@
+package org.ide.hack1.client.githubmodels;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.ide.hack1.dto.summary.SalesAggregatesDTO;
+import org.ide.hack1.util.CircuitBreaker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GithubModelsClientTest {
+
+    private static final String OK_BODY = "{\"choices\":[{\"message\":{\"content\":\" Resumen semanal \"}}]}";
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private final AtomicInteger hits = new AtomicInteger();
+    // scripted replies are used first, in order; then every request gets status/delayMs
+    private final Queue<Reply> script = new ConcurrentLinkedQueue<>();
+    private volatile int status = 200;
+    private volatile long delayMs;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private record Reply(int status, long delayMs, String retryAfter) {
+    }
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/chat", exchange -> {
+            hits.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            Reply reply = script.poll();
+            if (reply == null) reply = new Reply(status, delayMs, null);
+            try {
+                Thread.sleep(reply.delayMs());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = (reply.status() == 200 ? OK_BODY : "{\"error\":\"upstream\"}").getBytes(StandardCharsets.UTF_8);
+            if (reply.retryAfter() != null) exchange.getResponseHeaders().add("Retry-After", reply.retryAfter());
+            try (OutputStream out = exchange.getResponseBody()) {
+                exchange.sendResponseHeaders(reply.status(), body.length);
+                out.write(body);
+            } catch (IOException ignored) {
+                // the client gave up on a delayed response
+            }
+        });
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Test
+    void shouldReturnContentFromTheApi() {
+        // Given
+        GithubModelsClient client = client(Duration.ofSeconds(5), 3, Duration.ofSeconds(30));
+
+        // When
+        String summary = client.generateSummaryAsync(aggregates(), LocalDate.of(2025, 9, 1), LocalDate.of(2025, 9, 7)).join();
+
+        // Then
+        assertThat(summary).isEqualTo("Resumen semanal");
+        assertThat(hits.get()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldGiveUpAtTheLatencyBudget() {
+        // Given an API slower than the budget
+        delayMs = 3_000;
+        GithubModelsClient client = client(Duration.ofMillis(300), 3, Duration.ofSeconds(30));
+
+        // When
+        long start = System.nanoTime();
+        String summary = client.generateSummary(aggregates(), LocalDate.of(2025, 9, 1), LocalDate.of(2025, 9, 7));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        // Then the caller falls back well before the API answers
+        assertThat(summary).isNull();
+        assertThat(elapsedMs).isLessThan(2_000);
+    }
+
+    @Test
+    void shouldStopCallingTheApiOnceTheCircuitOpens() {
+        // Given an API answering 500
+        status = 500;
+        GithubModelsClient client = client(Duration.ofSeconds(5), 3, Duration.ofSeconds(30));
+        for (int i = 0; i < 3; i++) {
+            assertThat(client.generateSummary(aggregates(), LocalDate.of(2025, 9, 1), LocalDate.of(2025, 9, 7))).isNull();
+        }
+
+        // When
+        String summary = client.generateSummary(aggregates(), LocalDate.of(2025, 9, 1), LocalDate.of(2025, 9, 7));
+
+        // Then the fourth call never reaches the API
+        assertThat(summary).isNull();
+        assertThat(client.circuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(hits.get()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldCloseTheCircuitWhenTheProbeSucceeds() throws Exception {
+        // Given an open circuit
+        status = 500;
+        GithubModelsClient client = client(Duration.ofSeconds(5), 2, Duration.ofMillis(200));
+        client.generateSummary(aggregates(), LocalDate.of(2025, 9, 1), LocalDate.of(2025, 9, 7));
+        client.generateSummary(aggregates(), LocalDate.of(2025, 9, 1), LocalDate.of(2025, 9, 7));
+        assertThat(client.circuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        // When the API recovers and the open period elapses
+        status = 200;
+        Thread.sleep(300);
+        String summary = client.generateSummary(aggregates(), LocalDate.of(2025, 9, 1), LocalDate.of(2025, 9, 7));
+
+        // Then
+        assertThat(summary).isEqualTo("Resumen semanal");
+        assertThat(client.circuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(hits.get()).isEqualTo(3);
+    }
+
+    private GithubModelsClient client(Duration timeout, int failureThreshold, Duration openDuration) {
+        return client(timeout, failureThreshold, openDuration, 1, false, 0);
+    }
+
+    private GithubModelsClient client(Duration timeout, int failureThreshold, Duration openDuration,
+                                      int maxAttempts, boolean hedge, double requestsPerSecond) {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/chat";
+        return new GithubModelsClient(meterRegistry, "test-token", url, "test-model", timeout, failureThreshold, openDuration,
+                maxAttempts, Duration.ofMillis(20), Duration.ofMillis(100), hedge, 5, requestsPerSecond, 1);
+    }
+
+    private String summary(GithubModelsClient client) {
+        return client.generateSummary(aggregates(), LocalDate.of(2025, 9, 1), LocalDate.of(2025, 9, 7));
+    }
+
+    @Test
+    void shouldRetryRetryableStatusesAndHonourRetryAfter() {
+        // Given a 503 asking for one second, then a 429, then success
+        script.add(new Reply(503, 0, "1"));
+        script.add(new Reply(429, 0, null));
+        GithubModelsClient client = client(Duration.ofSeconds(5), 5, Duration.ofSeconds(30), 3, false, 0);
+
+        // When
+        long start = System.nanoTime();
+        String summary = summary(client);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        // Then the third attempt answers, and not before the server's Retry-After
+        assertThat(summary).isEqualTo("Resumen semanal");
+        assertThat(hits.get()).isEqualTo(3);
+        assertThat(elapsedMs).isGreaterThanOrEqualTo(1_000);
+        assertThat(client.circuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(meterRegistry.get("llm.github.attempt").tag("kind", "retry").timers()).hasSize(2);
+    }
+
+    @Test
+    void shouldNotRetryWhenRetryAfterIsBeyondTheBudget() {
+        // Given
+        script.add(new Reply(429, 0, "60"));
+        GithubModelsClient client = client(Duration.ofSeconds(2), 5, Duration.ofSeconds(30), 3, false, 0);
+
+        // When
+        long start = System.nanoTime();
+        String summary = summary(client);
+
+        // Then it gives up at once instead of sleeping past the budget
+        assertThat(summary).isNull();
+        assertThat(hits.get()).isEqualTo(1);
+        assertThat((System.nanoTime() - start) / 1_000_000).isLessThan(1_000);
+    }
+
+    @Test
+    void shouldHedgeAnAttemptSlowerThanTheP95() {
+        // Given five fast calls to learn the p95, then a stalled request
+        GithubModelsClient client = client(Duration.ofSeconds(5), 5, Duration.ofSeconds(30), 1, true, 0);
+        for (int i = 0; i < 5; i++) {
+            assertThat(summary(client)).isEqualTo("Resumen semanal");
+        }
+        script.add(new Reply(200, 3_000, null));
+
+        // When
+        long start = System.nanoTime();
+        String summary = summary(client);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        // Then the hedge answers long before the stalled request would
+        assertThat(summary).isEqualTo("Resumen semanal");
+        assertThat(hits.get()).isEqualTo(7);
+        assertThat(elapsedMs).isLessThan(2_000);
+        assertThat(meterRegistry.get("llm.github.attempt").tag("kind", "hedge").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldFallBackWhenTheRateLimitCannotServeWithinTheBudget() {
+        // Given one request per 10 seconds, burst 1, and a 500 ms budget
+        GithubModelsClient client = client(Duration.ofMillis(500), 5, Duration.ofSeconds(30), 1, false, 0.1);
+        assertThat(summary(client)).isEqualTo("Resumen semanal");
+
+        // When
+        String second = summary(client);
+
+        // Then the second call never reaches the API and does not count against the circuit
+        assertThat(second).isNull();
+        assertThat(hits.get()).isEqualTo(1);
+        assertThat(client.circuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    private static SalesAggregatesDTO aggregates() {
+        return SalesAggregatesDTO.builder()
+                .totalUnits(10)
+                .totalRevenue(100.0)
+                .topSku("OREO_CLASSIC")
+                .topBranch("Miraflores")
+                .build();
+    }
+}
@@ -0,0 +1,145 @@
+package org.ide.hack1.config;
+
+import org.flywaydb.core.Flyway;
+import org.ide.hack1.dto.sales.SaleRequest;
+import org.ide.hack1.dto.sales.SaleResponse;
+import org.ide.hack1.dto.summary.SalesAggregatesDTO;
+import org.ide.hack1.service.sales.SalesAggregationService;
+import org.ide.hack1.service.sales.SalesService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Dos H2 en memoria como primario y réplica: la réplica tiene el mismo esquema pero no recibe
+ * las escrituras, así se ve qué base atendió cada llamada.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReadWriteRoutingDataSourceTest.PRIMARY_URL,
+        "datasource.replica.url=" + ReadWriteRoutingDataSourceTest.REPLICA_URL,
+        "sales.aggregation.cache.replica-ttl=200ms",
+        // two fork/join workers even on a one-core machine, so long ranges take the parallel path
+        "sales.aggregation.parallelism=2"
+})
+class ReadWriteRoutingDataSourceTest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1;MODE=PostgreSQL";
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1;MODE=PostgreSQL";
+    private static final Instant FROM = Instant.parse("2025-05-01T00:00:00Z");
+    private static final Instant TO = Instant.parse("2025-05-31T23:59:59Z");
+
+    @Autowired
+    private SalesService salesService;
+
+    @Autowired
+    private SalesAggregationService salesAggregationService;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replica;
+
+    @BeforeAll
+    static void migrateReplica() {
+        // in production the replica gets its schema by replication from the primary
+        Flyway.configure().dataSource(REPLICA_URL, "sa", "").locations("classpath:db/migration/common").load().migrate();
+    }
+
+    @Test
+    void shouldWriteToPrimaryAndServeReadOnlyTransactionsFromReplica() {
+        // Given a sale created through the service (read-write transaction)
+        SaleResponse created = salesService.createSale(request(), "central", "CENTRAL", null);
+
+        // When listing in a read-only transaction
+        List<SaleResponse> fromReplica = salesService.listSales(FROM, TO, null, PageRequest.of(0, 10), "CENTRAL", null).getContent();
+
+        // Then the replica, which has not received the write, answers
+        assertThat(fromReplica).isEmpty();
+
+        // and once the row is replicated it is visible there
+        new JdbcTemplate(replica).update("insert into sales (id, sku, units, price, branch, sold_at, created_by, created_at) "
+                        + "values (?, 'OREO_CLASSIC', 3, 1.5, 'Miraflores', ?, 'central', ?)",
+                created.getId(), Timestamp.from(created.getSoldAt()), Timestamp.from(created.getCreatedAt()));
+        assertThat(salesService.listSales(FROM, TO, null, PageRequest.of(0, 10), "CENTRAL", null).getContent())
+                .extracting(SaleResponse::getId).containsExactly(created.getId());
+    }
+
+    @Test
+    void shouldReadFromPrimaryInsideOnPrimaryScope() {
+        // Given a sale only the primary has
+        SaleResponse created = salesService.createSale(request(), "central", "CENTRAL", null);
+
+        // When reading it back in a read-your-writes scope
+        SaleResponse read = ReadWriteRoutingDataSource.onPrimary(() -> salesService.getSale(created.getId(), "CENTRAL", null));
+
+        // Then
+        assertThat(read.getId()).isEqualTo(created.getId());
+    }
+
+    @Test
+    void shouldAggregateOnTheReplicaAndCacheItOnlyForTheReplicaTtl() throws Exception {
+        // Given a June sale the replica has not received yet
+        SaleResponse june = salesService.createSale(soldAt("2025-06-10T10:00:00Z"), "central", "CENTRAL", null);
+        Instant from = Instant.parse("2025-06-01T00:00:00Z");
+        Instant to = Instant.parse("2025-06-30T12:00:00Z");
+
+        // When
+        SalesAggregatesDTO beforeReplication = salesAggregationService.calculateAggregates(from, to, null);
+
+        // Then the replica answered
+        assertThat(beforeReplication.getTotalUnits()).isZero();
+
+        // and once the row is replicated, the cached replica result is gone after replica-ttl
+        replicate(june);
+        Thread.sleep(300);
+        assertThat(salesAggregationService.calculateAggregates(from, to, null).getTotalUnits()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldAggregateParallelSlicesOnTheReplica() {
+        // Given a sale only the primary has, inside a range long enough for the parallel path;
+        // from is not a midnight so its first slice, which holds the sale, reads sales rather than the rollup
+        SaleResponse july = salesService.createSale(soldAt("2025-07-03T10:00:00Z"), "central", "CENTRAL", null);
+        Instant from = Instant.parse("2025-07-01T12:00:00Z");
+        Instant to = Instant.parse("2025-08-31T12:00:00Z");
+
+        // When / Then the slices read the replica: nothing before replication, the sale after it
+        assertThat(salesAggregationService.calculateAggregates(from, to, null).getTotalUnits()).isZero();
+        replicate(july);
+        Instant otherTo = Instant.parse("2025-08-30T12:00:00Z");
+        assertThat(salesAggregationService.calculateAggregates(from, otherTo, null).getTotalUnits()).isEqualTo(3);
+    }
+
+    private void replicate(SaleResponse sale) {
+        new JdbcTemplate(replica).update("insert into sales (id, sku, units, price, branch, sold_at, created_by, created_at) "
+                        + "values (?, ?, ?, ?, ?, ?, ?, ?)",
+                sale.getId(), sale.getSku(), sale.getUnits(), sale.getPrice(), sale.getBranch(),
+                Timestamp.from(sale.getSoldAt()), sale.getCreatedBy(), Timestamp.from(sale.getCreatedAt()));
+    }
+
+    private SaleRequest soldAt(String soldAt) {
+        SaleRequest request = request();
+        request.setSoldAt(Instant.parse(soldAt));
+        return request;
+    }
+
+    private SaleRequest request() {
+        return SaleRequest.builder()
+                .sku("OREO_CLASSIC")
+                .units(3)
+                .price(1.5)
+                .branch("Miraflores")
+                .soldAt(Instant.parse("2025-05-10T10:00:00Z"))
+                .build();
+    }
+}
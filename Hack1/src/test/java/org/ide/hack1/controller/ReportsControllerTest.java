@@ -0,0 +1,125 @@
+package org.ide.hack1.controller;
+
+import org.ide.hack1.event.ReportFinishedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Variantes push de GET /reports/{id}: long-poll y SSE. El worker está apagado; cada test termina el
+ * reporte a mano y publica el evento que publicaría el worker.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class ReportsControllerTest {
+
+    private static final String ID = "req_events_test_1";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @AfterEach
+    void cleanup() {
+        jdbc.update("delete from report_requests where id = ?", ID);
+    }
+
+    private void insertProcessing() {
+        jdbc.update("insert into report_requests (id, branch, email_to, status, requested_at, attempts) values (?, 'Miraflores', ?, 'PROCESSING', ?, 1)",
+                ID, "a@b.com", Timestamp.from(Instant.now()));
+    }
+
+    private void finish() {
+        jdbc.update("update report_requests set status = 'DONE', summary_text = 'Se vendieron 10 unidades.', completed_at = ? where id = ?",
+                Timestamp.from(Instant.now()), ID);
+        eventPublisher.publishEvent(new ReportFinishedEvent(ID));
+    }
+
+    private static RequestPostProcessor user(String role, String branch) {
+        UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken("user", null,
+                List.of(new SimpleGrantedAuthority("ROLE_" + role)));
+        auth.setDetails(branch);
+        return authentication(auth);
+    }
+
+    @Test
+    void longPollShouldAnswerAsSoonAsTheReportFinishes() throws Exception {
+        // Given a client waiting on a report still PROCESSING
+        insertProcessing();
+        MvcResult pending = mvc.perform(get("/reports/{id}", ID).param("wait", "25").with(user("CENTRAL", null)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // When the report finishes
+        finish();
+
+        // Then the held request answers with the final status and summary
+        mvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("DONE"))
+                .andExpect(jsonPath("$.summaryText").value("Se vendieron 10 unidades."));
+    }
+
+    @Test
+    void streamShouldPushTheCurrentAndTheFinalStatus() throws Exception {
+        // Given a subscriber of the same branch
+        insertProcessing();
+        MvcResult stream = mvc.perform(get("/reports/{id}/events", ID).with(user("BRANCH", "Miraflores")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertThat(body(stream)).contains("event:status").contains("\"status\":\"PROCESSING\"");
+
+        // When
+        finish();
+
+        // Then the DONE event arrives without the client asking again
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!body(stream).contains("\"status\":\"DONE\"") && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(body(stream)).contains("\"status\":\"DONE\"").contains("Se vendieron 10 unidades.");
+    }
+
+    @Test
+    void streamShouldApplyTheSameBranchCheckAsGetReport() throws Exception {
+        // Given
+        insertProcessing();
+
+        // When / Then
+        mvc.perform(get("/reports/{id}/events", ID).with(user("BRANCH", "Surco")))
+                .andExpect(status().isForbidden());
+        mvc.perform(get("/reports/{id}", ID).param("wait", "5").with(user("BRANCH", "Surco")))
+                .andExpect(status().isForbidden());
+    }
+
+    private static String body(MvcResult result) throws Exception {
+        return result.getResponse().getContentAsString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,179 @@
+package org.ide.hack1.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import org.ide.hack1.entity.Sale;
+import org.ide.hack1.repository.SaleRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * GET /sales y sus variantes contra H2. Las ventas se insertan directo con el repositorio, en un mes
+ * que ningún otro test usa.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class SalesControllerTest {
+
+    private static final String FROM = "2025-08-01T00:00:00Z";
+    private static final String TO = "2025-08-31T23:59:59Z";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    private final List<String> ids = List.of("ctl-1", "ctl-2", "ctl-3");
+
+    @BeforeEach
+    void seed() {
+        saleRepository.saveAll(List.of(
+                sale("ctl-1", "OREO_CLASSIC", 2, "Miraflores", "2025-08-02T10:00:00Z"),
+                sale("ctl-2", "OREO_THINS", 1, "San Isidro", "2025-08-03T10:00:00Z"),
+                sale("ctl-3", "OREO_CLASSIC", 4, "Miraflores", "2025-08-04T10:00:00Z")));
+    }
+
+    @AfterEach
+    void cleanup() {
+        saleRepository.deleteAllById(ids);
+    }
+
+    private static RequestPostProcessor user(String role, String branch) {
+        UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken("user", null,
+                List.of(new SimpleGrantedAuthority("ROLE_" + role)));
+        auth.setDetails(branch);
+        return authentication(auth);
+    }
+
+    @Test
+    void getSaleShouldReturnEveryProjectedField() throws Exception {
+        // When
+        mvc.perform(get("/sales/ctl-2").with(user("BRANCH", "San Isidro")))
+                // Then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value("ctl-2"))
+                .andExpect(jsonPath("$.sku").value("OREO_THINS"))
+                .andExpect(jsonPath("$.units").value(1))
+                .andExpect(jsonPath("$.price").value(2.5))
+                .andExpect(jsonPath("$.branch").value("San Isidro"))
+                .andExpect(jsonPath("$.soldAt").value("2025-08-03T10:00:00Z"))
+                .andExpect(jsonPath("$.createdBy").value("test"))
+                .andExpect(jsonPath("$.createdAt").value(FROM));
+    }
+
+    @Test
+    void unfilteredListingShouldReturnTheRequestedPageWithTotals() throws Exception {
+        // When
+        mvc.perform(get("/sales").param("from", FROM).param("to", TO).param("page", "1").param("size", "2")
+                        .with(user("CENTRAL", null)))
+                // Then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].id").value("ctl-3"))
+                .andExpect(jsonPath("$.totalElements").value(3))
+                .andExpect(jsonPath("$.totalPages").value(2));
+    }
+
+    @Test
+    void listingWithoutCountShouldOnlyReportWhetherThereIsMore() throws Exception {
+        // When
+        mvc.perform(get("/sales").param("from", FROM).param("to", TO).param("size", "2").param("count", "false")
+                        .with(user("CENTRAL", null)))
+                // Then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value("ctl-1"))
+                .andExpect(jsonPath("$.content[1].id").value("ctl-2"))
+                .andExpect(jsonPath("$.last").value(false))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+
+    @Test
+    void cursorListingShouldStartFromAnEmptyCursorAndContinueFromNextCursor() throws Exception {
+        // Given the first page
+        MvcResult first = mvc.perform(get("/sales").param("from", FROM).param("to", TO).param("cursor", "").param("size", "2")
+                        .with(user("CENTRAL", null)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value("ctl-1"))
+                .andExpect(jsonPath("$.content[1].id").value("ctl-2"))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andReturn();
+        String next = JsonPath.read(first.getResponse().getContentAsString(), "$.nextCursor");
+
+        // When
+        mvc.perform(get("/sales").param("from", FROM).param("to", TO).param("cursor", next).param("size", "2")
+                        .with(user("CENTRAL", null)))
+                // Then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].id").value("ctl-3"))
+                .andExpect(jsonPath("$.hasNext").value(false))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void cursorListingShouldRejectATamperedCursorAndAnOutOfRangeSize() throws Exception {
+        // When / Then
+        mvc.perform(get("/sales").param("cursor", "bm9wZQ").with(user("CENTRAL", null)))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/sales").param("cursor", "").param("size", "1001").with(user("CENTRAL", null)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void exportShouldStreamOnTheExportPoolWithItsOwnTimeout() throws Exception {
+        // Given
+        MvcResult pending = mvc.perform(get("/sales/export").param("from", FROM).param("to", TO).param("format", "csv")
+                        .with(user("BRANCH", "Miraflores")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // When the body has been written
+        mvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"sales.csv\""));
+
+        // Then only the caller's branch was streamed, under sales.export.timeout rather than the MVC default
+        assertThat(pending.getRequest().getAsyncContext().getTimeout()).isEqualTo(Duration.ofMinutes(30).toMillis());
+        assertThat(pending.getResponse().getContentType()).startsWith("text/csv");
+        List<String> lines = pending.getResponse().getContentAsString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(1)).startsWith("ctl-1,OREO_CLASSIC,2,");
+        assertThat(lines.get(2)).startsWith("ctl-3,OREO_CLASSIC,4,");
+    }
+
+    private Sale sale(String id, String sku, int units, String branch, String soldAt) {
+        return Sale.builder()
+                .id(id)
+                .sku(sku)
+                .units(units)
+                .price(2.5)
+                .branch(branch)
+                .soldAt(Instant.parse(soldAt))
+                .createdBy("test")
+                .createdAt(Instant.parse(FROM))
+                .build();
+    }
+}
@@ -0,0 +1,91 @@
+package org.ide.hack1.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifica contra el planner de H2 (modo PostgreSQL) que las consultas de {@link ReportRequestRepository}
+ * y el claim de la cola usan los índices de report_requests (migraciones V1, V3 y V7).
+ */
+@SpringBootTest
+class ReportRequestIndexUsageTest {
+
+    private static final String ID = "req_idx_test_";
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void seed() {
+        // mostly finished reports from many users, a few still PROCESSING: the shape of a live table
+        Instant base = Instant.parse("2025-01-01T00:00:00Z");
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            rows.add(new Object[]{ID + i, "gerente" + i + "@oreo.com", "user" + (i % 200),
+                    i % 100 == 0 ? "PROCESSING" : "DONE", Timestamp.from(base.plus(i, ChronoUnit.MINUTES))});
+        }
+        jdbc.batchUpdate("insert into report_requests (id, email_to, requested_by, status, requested_at) "
+                + "values (?, ?, ?, ?, ?)", rows);
+        jdbc.execute("analyze");
+    }
+
+    @AfterEach
+    void cleanup() {
+        jdbc.update("delete from report_requests where id like ?", ID + "%");
+    }
+
+    @Test
+    void findByRequestedByUsesRequestedByIndex() {
+        // Given the SQL behind findByRequestedBy
+        String sql = "select r.id from report_requests r where r.requested_by = 'user7'";
+
+        // When / Then
+        assertThat(plan(sql)).containsIgnoringCase("IDX_REPORT_REQUESTS_REQUESTED_BY");
+    }
+
+    @Test
+    void findByStatusUsesStatusLeaseIndex() {
+        // Given the SQL behind findByStatus
+        String sql = "select r.id from report_requests r where r.status = 'PROCESSING'";
+
+        // When / Then
+        assertThat(plan(sql)).containsIgnoringCase("IDX_REPORT_REQUESTS_STATUS_LEASE");
+    }
+
+    @Test
+    void queueClaimUsesStatusLeaseIndex() {
+        // Given the select of ReportJobQueue.claim
+        String sql = "select id from report_requests where status = 'PROCESSING' and attempts < 3 "
+                + "and (lease_expires_at is null or lease_expires_at < timestamp '2025-01-02 00:00:00') "
+                + "order by requested_at limit 10";
+
+        // When / Then
+        assertThat(plan(sql)).containsIgnoringCase("IDX_REPORT_REQUESTS_STATUS_LEASE");
+    }
+
+    @Test
+    void redundantStatusIndexIsGone() {
+        // When
+        Integer count = jdbc.queryForObject("select count(*) from information_schema.indexes "
+                + "where lower(index_name) = 'idx_report_requests_status'", Integer.class);
+
+        // Then
+        assertThat(count).isZero();
+    }
+
+    private String plan(String sql) {
+        return jdbc.queryForObject("explain " + sql, String.class);
+    }
+}
@@ -0,0 +1,93 @@
+package org.ide.hack1.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifica contra el planner de H2 (modo PostgreSQL) que las consultas calientes de
+ * {@link SaleRepository} usan los índices creados por la migración V1.
+ */
+@SpringBootTest
+class SalesIndexUsageTest {
+
+    private static final String BRANCH_ID = "idx-test-";
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void seed() {
+        // enough rows across several branches that a full scan is never the cheapest plan
+        Instant base = Instant.parse("2025-01-01T00:00:00Z");
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            rows.add(new Object[]{BRANCH_ID + i, "OREO_" + (i % 7), 1 + i % 5, 1.99,
+                    "Branch" + (i % 10), Timestamp.from(base.plus(i, ChronoUnit.HOURS)), "seed",
+                    Timestamp.from(base)});
+        }
+        jdbc.batchUpdate("insert into sales (id, sku, units, price, branch, sold_at, created_by, created_at) "
+                + "values (?, ?, ?, ?, ?, ?, ?, ?)", rows);
+        jdbc.execute("analyze");
+    }
+
+    @AfterEach
+    void cleanup() {
+        jdbc.update("delete from sales where id like ?", BRANCH_ID + "%");
+    }
+
+    @Test
+    void findBySoldAtBetweenUsesSoldAtIndex() {
+        // Given the SQL behind findBySoldAtBetween / findFirstKeysetPage
+        String sql = "select s.id from sales s where s.sold_at between timestamp '2025-01-10 00:00:00' "
+                + "and timestamp '2025-01-11 00:00:00' order by s.sold_at, s.id";
+
+        // When / Then
+        assertThat(plan(sql)).containsIgnoringCase("IDX_SALES_SOLD_AT_ID");
+    }
+
+    @Test
+    void findBySoldAtBetweenAndBranchUsesBranchIndex() {
+        // Given the SQL behind findBySoldAtBetweenAndBranch / findKeysetPageAfterForBranch
+        String sql = "select s.id from sales s where s.branch = 'Branch3' and s.sold_at between "
+                + "timestamp '2025-01-10 00:00:00' and timestamp '2025-02-10 00:00:00' order by s.sold_at, s.id";
+
+        // When / Then
+        assertThat(plan(sql)).containsIgnoringCase("IDX_SALES_BRANCH_SOLD_AT_ID");
+    }
+
+    @Test
+    void findByBranchUsesBranchIndex() {
+        // Given the SQL behind findByBranch
+        String sql = "select s.id from sales s where s.branch = 'Branch3'";
+
+        // When / Then
+        assertThat(plan(sql)).containsIgnoringCase("IDX_SALES_BRANCH_SOLD_AT_ID");
+    }
+
+    @Test
+    void sumBySkuAndBranchUsesSoldAtIndex() {
+        // Given the SQL behind sumBySkuAndBranch
+        String sql = "select s.sku, s.branch, sum(s.units), sum(s.units * s.price) from sales s "
+                + "where s.sold_at between timestamp '2025-01-10 00:00:00' and timestamp '2025-01-17 00:00:00' "
+                + "group by s.sku, s.branch";
+
+        // When / Then
+        assertThat(plan(sql)).containsIgnoringCase("IDX_SALES_SOLD_AT_ID");
+    }
+
+    private String plan(String sql) {
+        return jdbc.queryForObject("explain " + sql, String.class);
+    }
+}
@@ -0,0 +1,88 @@
+package org.ide.hack1.security.jwt;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import org.ide.hack1.entity.User;
+import org.ide.hack1.security.model.Role;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtProviderTest {
+
+    private static final String SECRET = "test-secret-with-enough-length-for-hs256";
+
+    private User branchUser() {
+        User u = new User();
+        u.setUsername("ana");
+        u.setRole(Role.BRANCH);
+        u.setBranch("Miraflores");
+        return u;
+    }
+
+    @Test
+    void shouldReturnAllClaimsFromOneVerificationAndCacheThem() {
+        // Given
+        JwtProvider provider = new JwtProvider(SECRET, 3600, 100);
+        String token = provider.generateToken(branchUser());
+
+        // When
+        JwtPrincipal first = provider.verify(token);
+        JwtPrincipal second = provider.verify(token);
+
+        // Then
+        assertThat(first.username()).isEqualTo("ana");
+        assertThat(first.role()).isEqualTo("BRANCH");
+        assertThat(first.branch()).isEqualTo("Miraflores");
+        assertThat(second).isSameAs(first);
+        assertThat(provider.cacheSize()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRejectTamperedTokensAndNotCacheThem() {
+        // Given a token signed with another key
+        JwtProvider provider = new JwtProvider(SECRET, 3600, 100);
+        String forged = JWT.create().withSubject("ana").withClaim("role", "CENTRAL")
+                .withExpiresAt(Date.from(Instant.now().plusSeconds(60)))
+                .sign(Algorithm.HMAC256("another-secret"));
+
+        // When / Then
+        assertThatThrownBy(() -> provider.verify(forged)).isInstanceOf(JWTVerificationException.class);
+        assertThat(provider.cacheSize()).isZero();
+    }
+
+    @Test
+    void shouldStopServingCachedTokenOnceExpired() throws InterruptedException {
+        // Given a token valid for one second, already cached
+        JwtProvider provider = new JwtProvider(SECRET, 1, 100);
+        String token = provider.generateToken(branchUser());
+        provider.verify(token);
+
+        // When it expires
+        Thread.sleep(1100);
+
+        // Then
+        assertThatThrownBy(() -> provider.verify(token)).isInstanceOf(JWTVerificationException.class);
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedTokens() {
+        // Given
+        JwtProvider provider = new JwtProvider(SECRET, 3600, 2);
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            User u = branchUser();
+            u.setUsername("user" + i);
+            provider.verify(provider.generateToken(u));
+        }
+
+        // Then
+        assertThat(provider.cacheSize()).isEqualTo(2);
+    }
+}
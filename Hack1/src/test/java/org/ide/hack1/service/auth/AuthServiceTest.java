@@ -0,0 +1,98 @@
+package org.ide.hack1.service.auth;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.ide.hack1.dto.auth.LoginRequest;
+import org.ide.hack1.dto.auth.RegisterRequest;
+import org.ide.hack1.entity.User;
+import org.ide.hack1.repository.UserRepository;
+import org.ide.hack1.security.jwt.JwtProvider;
+import org.ide.hack1.security.model.Role;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Qué hilo toca la base en register y en el rehash del login: nunca uno del pool de BCrypt ni el del llamador.
+ */
+class AuthServiceTest {
+
+    private final ThreadPoolExecutor bcryptPool = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(4), new CustomizableThreadFactory("bcrypt-"));
+    private final ExecutorService dbPool = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("db-"));
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final AtomicReference<String> dbThread = new AtomicReference<>();
+    private AuthService authService;
+
+    @BeforeEach
+    void setUp() {
+        PasswordHashingService hashing = new PasswordHashingService(new BCryptPasswordEncoder(5), bcryptPool, new SimpleMeterRegistry());
+        JwtProvider jwtProvider = mock(JwtProvider.class);
+        when(jwtProvider.generateToken(any())).thenReturn("token");
+        authService = new AuthService(userRepository, hashing, jwtProvider, dbPool);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bcryptPool.shutdownNow();
+        dbPool.shutdownNow();
+    }
+
+    @Test
+    void registerShouldHashOnThePoolAndSaveOffIt() throws Exception {
+        // Given
+        when(userRepository.findByUsername("ana")).thenReturn(Optional.empty());
+        when(userRepository.findByEmail("ana@oreo.com")).thenReturn(Optional.empty());
+        when(userRepository.save(any())).thenAnswer(inv -> {
+            dbThread.set(Thread.currentThread().getName());
+            return inv.getArgument(0);
+        });
+        RegisterRequest req = RegisterRequest.builder().username("ana").email("ana@oreo.com").password("secret123")
+                .role("CENTRAL").build();
+
+        // When
+        User saved = authService.register(req).get(5, TimeUnit.SECONDS);
+
+        // Then neither the caller nor a bcrypt thread saved the user
+        assertThat(dbThread.get()).startsWith("db-");
+        assertThat(saved.getPassword()).startsWith("$2a$05$");
+    }
+
+    @Test
+    void loginRehashShouldUpdateTheHashOffTheBcryptPool() throws Exception {
+        // Given a user whose hash was made with a lower cost than the configured one
+        User user = User.builder().id("u1").username("ana").password(new BCryptPasswordEncoder(4).encode("secret123"))
+                .role(Role.CENTRAL).build();
+        when(userRepository.findByUsername("ana")).thenReturn(Optional.of(user));
+        doAnswer(inv -> {
+            dbThread.set(Thread.currentThread().getName());
+            return 1;
+        }).when(userRepository).replacePasswordHash(eq("u1"), anyString(), anyString());
+
+        // When
+        authService.login(new LoginRequest("ana", "secret123")).get(5, TimeUnit.SECONDS);
+
+        // Then
+        verify(userRepository, timeout(5000)).replacePasswordHash(eq("u1"), eq(user.getPassword()), anyString());
+        assertThat(dbThread.get()).startsWith("db-");
+    }
+}
@@ -0,0 +1,72 @@
+package org.ide.hack1.service.auth;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.ide.hack1.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PasswordHashingServiceTest {
+
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(1), new ThreadPoolExecutor.AbortPolicy());
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldRejectFastWhenPoolAndQueueAreFull() throws Exception {
+        // Given an encoder that blocks until released, one worker busy and one task queued
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder encoder = mock(PasswordEncoder.class);
+        when(encoder.encode(anyString())).thenAnswer(inv -> {
+            release.await();
+            return "hashed";
+        });
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PasswordHashingService service = new PasswordHashingService(encoder, executor, registry);
+        CompletableFuture<String> running = service.hash("a");
+        CompletableFuture<String> queued = service.hash("b");
+
+        // When / Then
+        assertThatThrownBy(() -> service.hash("c")).isInstanceOf(ServiceUnavailableException.class);
+        assertThat(registry.get("auth.password.rejected").counter().count()).isEqualTo(1.0);
+        assertThat(registry.get("auth.password.queue").gauge().value()).isEqualTo(1.0);
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("hashed");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("hashed");
+        assertThat(registry.get("auth.password.duration").tag("operation", "hash").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldFlagHashesBelowConfiguredStrengthForRehash() throws Exception {
+        // Given a hash made at cost 4 and a service configured with cost 5
+        String oldHash = new BCryptPasswordEncoder(4).encode("secret");
+        PasswordHashingService service = new PasswordHashingService(new BCryptPasswordEncoder(5), executor, new SimpleMeterRegistry());
+
+        // When
+        boolean matches = service.matches("secret", oldHash).get(5, TimeUnit.SECONDS);
+        String newHash = service.hash("secret").get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(matches).isTrue();
+        assertThat(service.needsRehash(oldHash)).isTrue();
+        assertThat(service.needsRehash(newHash)).isFalse();
+    }
+}
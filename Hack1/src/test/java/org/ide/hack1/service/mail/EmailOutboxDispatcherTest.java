@@ -0,0 +1,123 @@
+package org.ide.hack1.service.mail;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link EmailOutboxDispatcher} contra H2 y un servidor SMTP GreenMail en proceso. El sondeo periódico
+ * está apagado en el perfil test (mail.outbox.enabled=false): cada test vacía la outbox con
+ * {@link EmailOutboxDispatcher#drain()}.
+ */
+@SpringBootTest(properties = {
+        "mail.outbox.batch-size=2",
+        "mail.outbox.max-attempts=2",
+        "mail.outbox.initial-backoff=200ms",
+        "spring.mail.host=127.0.0.1",
+        "spring.mail.properties.mail.smtp.auth=false",
+        "spring.mail.properties.mail.smtp.starttls.enable=false"})
+class EmailOutboxDispatcherTest {
+
+    private static final String PREFIX = "req_outbox_test_";
+    private static final GreenMail smtp = new GreenMail(ServerSetupTest.SMTP.dynamicPort());
+
+    static {
+        smtp.start();
+    }
+
+    @DynamicPropertySource
+    static void mailPort(DynamicPropertyRegistry registry) {
+        registry.add("spring.mail.port", () -> smtp.getSmtp().getPort());
+    }
+
+    @AfterAll
+    static void stopSmtp() {
+        smtp.stop();
+    }
+
+    @Autowired
+    private EmailOutboxDispatcher dispatcher;
+
+    @Autowired
+    private EmailOutbox outbox;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @AfterEach
+    void cleanup() throws Exception {
+        jdbc.update("delete from email_outbox where report_request_id like ?", PREFIX + "%");
+        jdbc.update("delete from report_requests where id like ?", PREFIX + "%");
+        smtp.purgeEmailFromAllMailboxes();
+    }
+
+    @Test
+    void shouldDeliverEveryDueEmailInBatches() throws Exception {
+        // Given five queued emails and batches of two
+        for (int i = 0; i < 5; i++) {
+            outbox.enqueue(OutboxEmail.forReport(PREFIX + i, "gerente" + i + "@oreo.com", "Reporte " + i, "Resumen " + i));
+        }
+
+        // When
+        int attempted = dispatcher.drain();
+
+        // Then
+        assertThat(attempted).isEqualTo(5);
+        MimeMessage[] received = smtp.getReceivedMessages();
+        assertThat(Arrays.stream(received).map(m -> subject(m))).containsExactlyInAnyOrder(
+                "Reporte 0", "Reporte 1", "Reporte 2", "Reporte 3", "Reporte 4");
+        assertThat(jdbc.queryForList("select distinct status from email_outbox where report_request_id like ?",
+                String.class, PREFIX + "%")).containsExactly("SENT");
+        assertThat(outbox.statusForReport(PREFIX + 0)).contains(EmailOutbox.Status.SENT);
+    }
+
+    @Test
+    void shouldRetryABadAddressWithoutHoldingBackItsBatchThenFailIt() throws Exception {
+        // Given a report whose address cannot be parsed, queued next to a good one
+        jdbc.update("insert into report_requests (id, email_to, status, requested_at, attempts) values (?, ?, 'DONE', ?, 1)",
+                PREFIX + "bad", "broken <x@oreo.com", Timestamp.from(Instant.now()));
+        outbox.enqueue(OutboxEmail.forReport(PREFIX + "bad", "broken <x@oreo.com", "Reporte malo", "Resumen"));
+        outbox.enqueue(OutboxEmail.forReport(PREFIX + "good", "gerente@oreo.com", "Reporte bueno", "Resumen"));
+
+        // When the first pass runs
+        dispatcher.drain();
+
+        // Then the good email went out and the bad one waits for its retry
+        assertThat(smtp.getReceivedMessages()).hasSize(1);
+        assertThat(outbox.statusForReport(PREFIX + "good")).contains(EmailOutbox.Status.SENT);
+        assertThat(outbox.statusForReport(PREFIX + "bad")).contains(EmailOutbox.Status.PENDING);
+        assertThat(jdbc.queryForObject("select last_error from email_outbox where report_request_id = ?", String.class, PREFIX + "bad"))
+                .isNotBlank();
+
+        // When the retry, due after the 200 ms backoff, fails as well
+        Thread.sleep(300);
+        dispatcher.drain();
+
+        // Then it is given up and the report records why
+        assertThat(outbox.statusForReport(PREFIX + "bad")).contains(EmailOutbox.Status.FAILED);
+        assertThat(jdbc.queryForObject("select error_message from report_requests where id = ?", String.class, PREFIX + "bad"))
+                .startsWith("email error:");
+    }
+
+    private static String subject(MimeMessage message) {
+        try {
+            return message.getSubject();
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
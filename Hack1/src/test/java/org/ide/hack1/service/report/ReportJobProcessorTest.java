@@ -0,0 +1,93 @@
+package org.ide.hack1.service.report;
+
+import org.ide.hack1.client.githubmodels.GithubModelsClient;
+import org.ide.hack1.dto.summary.SalesAggregatesDTO;
+import org.ide.hack1.entity.ReportRequest;
+import org.ide.hack1.service.sales.SalesAggregationService;
+import org.ide.hack1.service.sales.SalesRollupService;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReportJobProcessorTest {
+
+    @Test
+    void shouldCapConcurrentLlmCallsWhenManyReportsRunOnVirtualThreads() throws Exception {
+        // Given an LLM stand-in that takes 50 ms and tracks how many calls overlap
+        SalesAggregationService aggregation = mock(SalesAggregationService.class);
+        when(aggregation.calculateAggregates(any(), any(), any()))
+                .thenReturn(SalesAggregatesDTO.builder().totalUnits(10).totalRevenue(25.0).topSku("OREO_CLASSIC").topBranch("Miraflores").build());
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        GithubModelsClient llm = mock(GithubModelsClient.class);
+        when(llm.generateSummary(any(), any(), any())).thenAnswer(inv -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            inFlight.decrementAndGet();
+            return "Se vendieron 10 unidades de OREO_CLASSIC.";
+        });
+        ReportJobProcessor processor = new ReportJobProcessor(aggregation, llm, mock(SalesRollupService.class),
+                mock(ReportSummaryStore.class), true, 4, 2);
+
+        // When 12 different reports are summarized at once, one virtual thread each
+        List<Future<ReportSummary>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 12; i++) {
+                ReportRequest rr = ReportRequest.builder().id("req_" + i)
+                        .fromDate(LocalDate.of(2025, 9, 1)).toDate(LocalDate.of(2025, 9, 7).plusDays(i)).build();
+                results.add(executor.submit(() -> processor.buildSummary(rr)));
+            }
+        }
+
+        // Then every report got its summary but never more than 2 LLM calls overlapped
+        for (Future<ReportSummary> result : results) {
+            assertThat(result.get().text()).contains("OREO_CLASSIC");
+        }
+        assertThat(maxInFlight.get()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldComputeIdenticalConcurrentRequestsOnce() throws Exception {
+        // Given a slow aggregation and five requests for the same week, with null and blank meaning all branches
+        AtomicInteger aggregations = new AtomicInteger();
+        SalesAggregationService aggregation = mock(SalesAggregationService.class);
+        when(aggregation.calculateAggregates(any(), any(), any())).thenAnswer(inv -> {
+            aggregations.incrementAndGet();
+            Thread.sleep(200);
+            return SalesAggregatesDTO.builder().totalUnits(7).totalRevenue(14.0).topSku("OREO_MINI").build();
+        });
+        GithubModelsClient llm = mock(GithubModelsClient.class);
+        ReportJobProcessor processor = new ReportJobProcessor(aggregation, llm, mock(SalesRollupService.class),
+                mock(ReportSummaryStore.class), true, 4, 2);
+
+        // When
+        List<Future<ReportSummary>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 5; i++) {
+                ReportRequest rr = ReportRequest.builder().id("req_" + i).branch(i % 2 == 0 ? null : " ")
+                        .fromDate(LocalDate.of(2025, 9, 1)).toDate(LocalDate.of(2025, 9, 7)).build();
+                results.add(executor.submit(() -> processor.buildSummary(rr)));
+            }
+        }
+
+        // Then one aggregation and one LLM call served all five
+        for (Future<ReportSummary> result : results) {
+            assertThat(result.get().text()).contains("OREO_MINI");
+        }
+        assertThat(aggregations.get()).isEqualTo(1);
+        verify(llm, times(1)).generateSummary(any(), any(), any());
+    }
+}
@@ -0,0 +1,121 @@
+package org.ide.hack1.service.report;
+
+import org.ide.hack1.entity.ReportRequest;
+import org.ide.hack1.service.mail.OutboxEmail;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Claim/lease de {@link ReportJobQueue} contra H2. Con concurrency 0 el worker de este nodo no reclama nada.
+ */
+@SpringBootTest
+class ReportJobQueueTest {
+
+    private static final String PREFIX = "req_queue_test_";
+    private static final Duration LEASE = Duration.ofMinutes(5);
+
+    @Autowired
+    private ReportJobQueue queue;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanup() {
+        jdbc.update("delete from email_outbox where report_request_id like ?", PREFIX + "%");
+        jdbc.update("delete from report_requests where id like ?", PREFIX + "%");
+    }
+
+    private void insertPending(int count) {
+        Instant base = Instant.parse("2020-01-01T00:00:00Z");
+        for (int i = 0; i < count; i++) {
+            jdbc.update("insert into report_requests (id, email_to, status, requested_at, attempts) values (?, ?, 'PROCESSING', ?, 0)",
+                    PREFIX + i, "a@b.com", Timestamp.from(base.plusSeconds(i)));
+        }
+    }
+
+    private static ReportSummary computed(String text) {
+        return new ReportSummary(text, ReportRequest.SummarySource.COMPUTED);
+    }
+
+    @Test
+    void shouldSkipRowsLockedByAnotherWorkerInsteadOfSharingThem() throws Exception {
+        // Given worker A holds its claim transaction open on the two oldest jobs
+        insertPending(4);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        List<String> claimedByB = tx.execute(status -> {
+            List<String> claimedByA = queue.claim("worker-a", 2, LEASE, 3);
+            assertThat(claimedByA).containsExactly(PREFIX + 0, PREFIX + 1);
+
+            // When worker B claims concurrently, it must return at once instead of waiting for A
+            List<String> claimed = CompletableFuture.supplyAsync(() -> queue.claim("worker-b", 10, LEASE, 3))
+                    .orTimeout(5, TimeUnit.SECONDS).join();
+
+            // Then B never gets A's rows (PostgreSQL hands it the other two; H2 also locks rows A read past its LIMIT)
+            assertThat(claimed).doesNotContainAnyElementsOf(claimedByA);
+            return claimed;
+        });
+
+        // and after A commits, the remaining jobs go to the next claimer exactly once
+        List<String> rest = queue.claim("worker-c", 10, LEASE, 3);
+        assertThat(claimedByB).doesNotContainAnyElementsOf(rest);
+        assertThat(rest.size() + claimedByB.size()).isEqualTo(2);
+        assertThat(queue.claim("worker-d", 10, LEASE, 3)).isEmpty();
+    }
+
+    @Test
+    void shouldReclaimExpiredLeaseAndFenceOutThePreviousOwner() throws Exception {
+        // Given worker A claimed a job and its lease ran out
+        insertPending(1);
+        assertThat(queue.claim("worker-a", 1, Duration.ZERO, 3)).hasSize(1);
+        TimeUnit.MILLISECONDS.sleep(5);
+
+        // When worker B claims it again
+        List<String> reclaimed = queue.claim("worker-b", 1, LEASE, 3);
+
+        // Then only B can complete it, and only B's email reaches the outbox
+        assertThat(reclaimed).containsExactly(PREFIX + 0);
+        OutboxEmail late = OutboxEmail.forReport(PREFIX + 0, "a@b.com", "late", "late");
+        OutboxEmail ok = OutboxEmail.forReport(PREFIX + 0, "a@b.com", "ok", "ok");
+        assertThat(queue.complete(PREFIX + 0, "worker-a", computed("late"), late)).isFalse();
+        assertThat(queue.complete(PREFIX + 0, "worker-b", computed("ok"), ok)).isTrue();
+        assertThat(jdbc.queryForList("select id from email_outbox where report_request_id = ?", String.class, PREFIX + 0))
+                .containsExactly(ok.id());
+        assertThat(jdbc.queryForObject("select attempts from report_requests where id = ?", Integer.class, PREFIX + 0)).isEqualTo(2);
+        assertThat(jdbc.queryForObject("select status from report_requests where id = ?", String.class, PREFIX + 0)).isEqualTo("DONE");
+    }
+
+    @Test
+    void shouldFailJobsWhoseLastAttemptLeaseExpired() throws Exception {
+        // Given a job on its last attempt whose worker died
+        insertPending(1);
+        queue.claim("worker-a", 1, Duration.ZERO, 1);
+        TimeUnit.MILLISECONDS.sleep(5);
+
+        // When
+        int failed = queue.failExhausted(1);
+
+        // Then
+        assertThat(failed).isEqualTo(1);
+        assertThat(queue.claim("worker-b", 1, LEASE, 1)).isEmpty();
+        assertThat(jdbc.queryForObject("select status from report_requests where id = ?", String.class, PREFIX + 0)).isEqualTo("FAILED");
+    }
+}
@@ -0,0 +1,177 @@
+package org.ide.hack1.service.report;
+
+import org.ide.hack1.client.githubmodels.GithubModelsClient;
+import org.ide.hack1.dto.sales.SaleRequest;
+import org.ide.hack1.dto.summary.SalesAggregatesDTO;
+import org.ide.hack1.entity.ReportRequest;
+import org.ide.hack1.service.sales.SalesAggregationService;
+import org.ide.hack1.service.sales.SalesRollupService;
+import org.ide.hack1.service.sales.SalesService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Precálculo del rango por defecto contra H2, con el LLM simulado. El cron está apagado en el perfil
+ * test; cada test llama a {@link ReportPrecomputeScheduler#precompute} con un "hoy" fijo.
+ */
+@SpringBootTest
+class ReportPrecomputeSchedulerTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2023, 6, 12);
+    private static final ReportPeriod WEEK = ReportPeriod.lastSevenDays(TODAY);
+
+    @Autowired
+    private ReportPrecomputeScheduler scheduler;
+
+    @Autowired
+    private ReportJobProcessor processor;
+
+    @Autowired
+    private SchedulerLock schedulerLock;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private SalesService salesService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @MockitoBean
+    private GithubModelsClient githubModelsClient;
+
+    @MockitoSpyBean
+    private SalesAggregationService salesAggregationService;
+
+    @AfterEach
+    void cleanup() {
+        jdbc.update("delete from sales where branch like 'PrecomputeBranch%'");
+        jdbc.update("delete from sales_daily_rollup where branch like 'PrecomputeBranch%'");
+        jdbc.update("delete from report_summaries where from_date = ?", WEEK.from());
+        jdbc.update("delete from scheduler_locks where name = ?", ReportPrecomputeScheduler.LOCK_NAME);
+    }
+
+    private void sell(String branch, String soldAt, int units) {
+        SaleRequest req = SaleRequest.builder().sku("OREO_PRE").units(units).price(2.0).branch(branch)
+                .soldAt(Instant.parse(soldAt)).build();
+        salesService.createSale(req, "tester", "CENTRAL", null);
+    }
+
+    @Test
+    void shouldStoreEveryBranchAndTheAllBranchesViewForTheDefaultRange() {
+        // Given last week's sales in two branches and an LLM that answers
+        sell("PrecomputeBranchA", "2023-06-06T10:00:00Z", 3);
+        sell("PrecomputeBranchB", "2023-06-10T10:00:00Z", 4);
+        when(githubModelsClient.generateSummary(any(), any(), any()))
+                .thenAnswer(inv -> "Lo más vendido fue " + inv.<SalesAggregatesDTO>getArgument(0).getTopSku() + ".");
+
+        // When
+        ReportPrecomputeScheduler.Result result = scheduler.precompute(TODAY).join();
+
+        // Then both branches and the all-branches view are in the store
+        assertThat(result.ran()).isTrue();
+        assertThat(result.failed()).isZero();
+        assertThat(jdbc.queryForList("select branch_key from report_summaries where from_date = ? and to_date = ?",
+                String.class, WEEK.from(), WEEK.to())).contains("", "PrecomputeBranchA", "PrecomputeBranchB");
+
+        // When a branch asks for the default range afterwards
+        clearInvocations(githubModelsClient);
+        ReportRequest monday = ReportRequest.builder().id("req_precompute").fromDate(WEEK.from()).toDate(WEEK.to())
+                .branch("PrecomputeBranchA").build();
+        ReportSummary summary = processor.buildSummary(monday);
+
+        // Then it is served from the precomputed summary
+        assertThat(summary.source()).isEqualTo(ReportRequest.SummarySource.STORED);
+        assertThat(summary.text()).contains("OREO_PRE");
+        verify(githubModelsClient, never()).generateSummary(any(), any(), any());
+    }
+
+    @Test
+    void shouldKeepTheAggregatesWhenTheLlmIsDownAndUpgradeThemLater() {
+        // Given last week's sales in two branches and an LLM that does not answer
+        sell("PrecomputeBranchA", "2023-06-06T10:00:00Z", 3);
+        sell("PrecomputeBranchB", "2023-06-10T10:00:00Z", 4);
+        when(githubModelsClient.generateSummary(any(), any(), any())).thenReturn(null);
+
+        // When
+        ReportPrecomputeScheduler.Result result = scheduler.precompute(TODAY).join();
+
+        // Then every view is stored as a fallback, not counted as computed
+        assertThat(result.ran()).isTrue();
+        assertThat(result.computed()).isZero();
+        assertThat(result.fallback()).isEqualTo(3);
+        assertThat(result.failed()).isZero();
+
+        // When a branch asks for the default range afterwards
+        clearInvocations(githubModelsClient, salesAggregationService);
+        ReportRequest monday = ReportRequest.builder().id("req_precompute").fromDate(WEEK.from()).toDate(WEEK.to())
+                .branch("PrecomputeBranchA").build();
+        ReportSummary fallback = processor.buildSummary(monday);
+
+        // Then it is answered from the store without aggregating again
+        assertThat(fallback.source()).isEqualTo(ReportRequest.SummarySource.STORED);
+        assertThat(fallback.text()).contains("OREO_PRE");
+        verify(salesAggregationService, never()).calculateAggregates(any(), any(), anyString());
+
+        // When the LLM is back
+        when(githubModelsClient.generateSummary(any(), any(), any())).thenReturn("Lo más vendido fue OREO_PRE.");
+        ReportSummary upgraded = processor.buildSummary(monday);
+
+        // Then the stored aggregates are summarized and the result replaces the fallback
+        assertThat(upgraded.source()).isEqualTo(ReportRequest.SummarySource.COMPUTED);
+        assertThat(upgraded.text()).isEqualTo("Lo más vendido fue OREO_PRE.");
+        assertThat(processor.buildSummary(monday).source()).isEqualTo(ReportRequest.SummarySource.STORED);
+        verify(salesAggregationService, never()).calculateAggregates(any(), any(), anyString());
+    }
+
+    @Test
+    void shouldSkipTheRunWhileAnotherNodeHoldsTheLock() {
+        // Given
+        sell("PrecomputeBranchA", "2023-06-06T10:00:00Z", 3);
+        assertThat(schedulerLock.tryLock(ReportPrecomputeScheduler.LOCK_NAME, "other-node", Duration.ofHours(1))).isTrue();
+
+        // When
+        ReportPrecomputeScheduler.Result result = scheduler.precompute(TODAY).join();
+
+        // Then nothing is computed here, and the lock can be taken once released
+        assertThat(result.ran()).isFalse();
+        verify(githubModelsClient, never()).generateSummary(any(), any(), any());
+        assertThat(schedulerLock.tryLock(ReportPrecomputeScheduler.LOCK_NAME, "this-node", Duration.ofHours(1))).isFalse();
+        schedulerLock.unlock(ReportPrecomputeScheduler.LOCK_NAME, "other-node");
+        assertThat(schedulerLock.tryLock(ReportPrecomputeScheduler.LOCK_NAME, "this-node", Duration.ofHours(1))).isTrue();
+    }
+
+    @Test
+    void shouldNotRunWithoutASummaryStore() {
+        // Given a scheduler whose summaries would have nowhere to go
+        ReportPrecomputeScheduler withoutStore = new ReportPrecomputeScheduler(processor, salesRollupService,
+                schedulerLock, Runnable::run, true, false, Duration.ofHours(1));
+        sell("PrecomputeBranchA", "2023-06-06T10:00:00Z", 3);
+
+        // When
+        ReportPrecomputeScheduler.Result result = withoutStore.precompute(TODAY).join();
+
+        // Then no LLM call is spent and the lock is left free
+        assertThat(result.ran()).isFalse();
+        verify(githubModelsClient, never()).generateSummary(any(), any(), any());
+        assertThat(schedulerLock.tryLock(ReportPrecomputeScheduler.LOCK_NAME, "this-node", Duration.ofHours(1))).isTrue();
+    }
+}
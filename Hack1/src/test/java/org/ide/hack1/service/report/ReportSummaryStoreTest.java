@@ -0,0 +1,119 @@
+package org.ide.hack1.service.report;
+
+import org.ide.hack1.client.githubmodels.GithubModelsClient;
+import org.ide.hack1.dto.sales.SaleRequest;
+import org.ide.hack1.dto.sales.SaleResponse;
+import org.ide.hack1.entity.ReportRequest;
+import org.ide.hack1.service.sales.SalesService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Reutilización de resúmenes de periodos cerrados con la versión de datos real de sales_daily_rollup (H2).
+ */
+@SpringBootTest
+class ReportSummaryStoreTest {
+
+    private static final String BRANCH = "StoreTestBranch";
+    private static final LocalDate FROM = LocalDate.of(2024, 3, 4);
+    private static final LocalDate TO = LocalDate.of(2024, 3, 10);
+
+    @Autowired
+    private ReportJobProcessor processor;
+
+    @Autowired
+    private SalesService salesService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @MockitoBean
+    private GithubModelsClient githubModelsClient;
+
+    @AfterEach
+    void cleanup() {
+        jdbc.update("delete from sales where branch = ?", BRANCH);
+        jdbc.update("delete from sales_daily_rollup where branch = ?", BRANCH);
+        jdbc.update("delete from report_summaries where branch_key = ?", BRANCH);
+    }
+
+    private SaleResponse sell(String soldAt, int units) {
+        SaleRequest req = SaleRequest.builder().sku("OREO_STORE").units(units).price(2.0).branch(BRANCH)
+                .soldAt(Instant.parse(soldAt)).build();
+        return salesService.createSale(req, "tester", "CENTRAL", null);
+    }
+
+    private ReportRequest request() {
+        return ReportRequest.builder().id("req_store").fromDate(FROM).toDate(TO).branch(BRANCH).build();
+    }
+
+    @Test
+    void shouldReuseStoredSummaryUntilSalesInTheRangeChange() {
+        // Given a closed week with sales and an LLM that answers
+        sell("2024-03-05T10:00:00Z", 3);
+        when(githubModelsClient.generateSummary(any(), any(), any())).thenReturn("Se vendieron 3 unidades de OREO_STORE.");
+
+        // When the same week is requested twice
+        ReportSummary first = processor.buildSummary(request());
+        ReportSummary second = processor.buildSummary(request());
+
+        // Then the second one is served from the store without calling the LLM
+        assertThat(first.source()).isEqualTo(ReportRequest.SummarySource.COMPUTED);
+        assertThat(second.source()).isEqualTo(ReportRequest.SummarySource.STORED);
+        assertThat(second.text()).isEqualTo(first.text());
+        verify(githubModelsClient, times(1)).generateSummary(any(), any(), any());
+
+        // When a back-dated sale lands in that week
+        SaleResponse late = sell("2024-03-09T18:00:00Z", 5);
+        when(githubModelsClient.generateSummary(any(), any(), any())).thenReturn("Se vendieron 8 unidades de OREO_STORE.");
+
+        // Then the summary is computed again, and deleting that sale changes the version once more
+        ReportSummary third = processor.buildSummary(request());
+        assertThat(third.source()).isEqualTo(ReportRequest.SummarySource.COMPUTED);
+        assertThat(third.text()).contains("8 unidades");
+        salesService.deleteSale(late.getId(), "CENTRAL");
+        assertThat(processor.buildSummary(request()).source()).isEqualTo(ReportRequest.SummarySource.COMPUTED);
+    }
+
+    @Test
+    void shouldServeTheStoredFallbackAndReplaceItOnceTheLlmAnswers() {
+        // Given the LLM is unavailable
+        sell("2024-03-06T10:00:00Z", 2);
+        when(githubModelsClient.generateSummary(any(), any(), any())).thenReturn(null);
+
+        // When
+        ReportSummary first = processor.buildSummary(request());
+        ReportSummary again = processor.buildSummary(request());
+
+        // Then the fallback text is stored, but the LLM is tried again on every request
+        assertThat(first.source()).isEqualTo(ReportRequest.SummarySource.COMPUTED);
+        assertThat(again.source()).isEqualTo(ReportRequest.SummarySource.STORED);
+        assertThat(again.text()).contains("Se vendieron 2 unidades");
+        verify(githubModelsClient, times(2)).generateSummary(any(), any(), any());
+
+        // When the LLM is back
+        when(githubModelsClient.generateSummary(any(), any(), any())).thenReturn("Se vendieron 2 unidades de OREO_STORE.");
+        ReportSummary upgraded = processor.buildSummary(request());
+        ReportSummary reused = processor.buildSummary(request());
+
+        // Then its summary replaces the fallback and is reused from then on
+        assertThat(upgraded.source()).isEqualTo(ReportRequest.SummarySource.COMPUTED);
+        assertThat(upgraded.text()).isEqualTo("Se vendieron 2 unidades de OREO_STORE.");
+        assertThat(reused.source()).isEqualTo(ReportRequest.SummarySource.STORED);
+        assertThat(reused.text()).isEqualTo(upgraded.text());
+        verify(githubModelsClient, times(3)).generateSummary(any(), any(), any());
+    }
+}
@@ -0,0 +1,52 @@
+package org.ide.hack1.service.sales;
+
+import org.ide.hack1.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SaleCursorTest {
+
+    @Test
+    void shouldRoundTripSoldAtToTheNanosecondAndTheId() {
+        // Given an id that itself contains the separators
+        SaleCursor cursor = new SaleCursor(Instant.parse("2025-10-05T10:00:00.123456789Z"), "s_a:b.c");
+
+        // When
+        String token = cursor.encode();
+
+        // Then the token is URL-safe and decodes to the same position
+        assertThat(token).matches("[A-Za-z0-9_-]+");
+        assertThat(SaleCursor.decode(token)).isEqualTo(cursor);
+    }
+
+    @Test
+    void shouldRoundTripInstantsBeforeTheEpoch() {
+        // Given
+        SaleCursor cursor = new SaleCursor(Instant.parse("1969-12-31T23:59:59.5Z"), "s_old");
+
+        // When / Then
+        assertThat(SaleCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void shouldRejectMalformedTokensAsBadRequests() {
+        // Given / When / Then
+        for (String token : new String[]{"not base64!", encoded("12.0"), encoded("12.0:"), encoded(":s_1"),
+                encoded("abc.0:s_1"), encoded("12:s_1"), encoded("12.x:s_1")}) {
+            assertThatThrownBy(() -> SaleCursor.decode(token))
+                    .as(token)
+                    .isInstanceOf(BadRequestException.class)
+                    .hasMessage("invalid cursor");
+        }
+    }
+
+    private static String encoded(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
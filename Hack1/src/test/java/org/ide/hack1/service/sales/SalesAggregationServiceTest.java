@@ -1,21 +1,31 @@
 package org.ide.hack1.service.sales;
 
+import org.ide.hack1.config.ReadWriteRoutingDataSource;
 import org.ide.hack1.dto.summary.SalesAggregatesDTO;
+import org.ide.hack1.dto.summary.SalesGroupRow;
 import org.ide.hack1.entity.Sale;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.ide.hack1.repository.SaleRepository;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -24,9 +34,21 @@ class SalesAggregationServiceTest {
     @Mock
     private SaleRepository saleRepository;
 
-    @InjectMocks
+    @Mock
+    private SalesRollupService salesRollupService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     private SalesAggregationService salesAggregationService;
 
+    @BeforeEach
+    void setUp() {
+        // single-thread pool keeps the sequential path
+        salesAggregationService = new SalesAggregationService(saleRepository, salesRollupService, new ForkJoinPool(1),
+                disabledCache(), transactionManager, true, 7, 31);
+    }
+
     private Sale createSale(String id, String sku, int units, double price, String branch, Instant soldAt) {
         Sale s = new Sale();
         s.setId(id);
@@ -40,6 +62,26 @@ class SalesAggregationServiceTest {
         return s;
     }
 
+    private SalesAggregatesCache disabledCache() {
+        return new SalesAggregatesCache(new SimpleMeterRegistry(), false, 0, Duration.ZERO, Duration.ZERO, "", false);
+    }
+
+    private SalesAggregatesCache enabledCache() {
+        return new SalesAggregatesCache(new SimpleMeterRegistry(), true, 100, Duration.ofMinutes(5), Duration.ZERO, "", false);
+    }
+
+    // mimics the GROUP BY sku, branch done by the repository aggregation queries
+    private List<SalesGroupRow> groupRows(List<Sale> sales) {
+        Map<String, SalesGroupRow> groups = new LinkedHashMap<>();
+        for (Sale s : sales) {
+            SalesGroupRow row = groups.computeIfAbsent(s.getSku() + "|" + s.getBranch(),
+                    k -> new SalesGroupRow(s.getSku(), s.getBranch(), 0, 0.0));
+            row.setUnits(row.getUnits() + s.getUnits());
+            row.setRevenue(row.getRevenue() + s.getUnits() * s.getPrice());
+        }
+        return new ArrayList<>(groups.values());
+    }
+
     @Test
     void shouldCalculateCorrectAggregatesWithValidData() {
         // Given
@@ -50,7 +92,7 @@ class SalesAggregationServiceTest {
                 createSale("s3", "OREO_CLASSIC", 15, 1.99, "Miraflores", now)
         );
 
-        when(saleRepository.findBySoldAtBetween(any(), any())).thenReturn(mockSales);
+        when(saleRepository.sumBySkuAndBranch(any(), any())).thenReturn(groupRows(mockSales));
 
         // When
         SalesAggregatesDTO result = salesAggregationService.calculateAggregates(Instant.EPOCH, Instant.now(), null);
@@ -66,7 +108,7 @@ class SalesAggregationServiceTest {
     @Test
     void shouldHandleEmptySalesList() {
         // Given
-        when(saleRepository.findBySoldAtBetween(any(), any())).thenReturn(List.of());
+        when(saleRepository.sumBySkuAndBranch(any(), any())).thenReturn(List.of());
 
         // When
         SalesAggregatesDTO result = salesAggregationService.calculateAggregates(Instant.EPOCH, Instant.now(), null);
@@ -86,7 +128,7 @@ class SalesAggregationServiceTest {
                 createSale("s1", "A", 3, 1.0, "Miraflores", now),
                 createSale("s2", "B", 2, 2.0, "Miraflores", now)
         );
-        when(saleRepository.findBySoldAtBetweenAndBranch(any(), any(), any(), any(PageRequest.class))).thenReturn(new PageImpl<>(branchSales));
+        when(saleRepository.sumBySkuAndBranchForBranch(any(), any(), any())).thenReturn(groupRows(branchSales));
 
         // When
         SalesAggregatesDTO result = salesAggregationService.calculateAggregates(Instant.EPOCH, Instant.now(), "Miraflores");
@@ -103,7 +145,7 @@ class SalesAggregationServiceTest {
         List<Sale> onlyRange = List.of(
                 createSale("s1", "X", 4, 1.0, "M", inRange)
         );
-        when(saleRepository.findBySoldAtBetween(any(), any())).thenReturn(onlyRange);
+        when(saleRepository.sumBySkuAndBranch(any(), any())).thenReturn(groupRows(onlyRange));
 
         // When
         SalesAggregatesDTO result = salesAggregationService.calculateAggregates(inRange, inRange, null);
@@ -121,7 +163,7 @@ class SalesAggregationServiceTest {
                 createSale("s1", "SKU_A", 10, 1.0, "B", now),
                 createSale("s2", "SKU_B", 10, 1.0, "B", now)
         );
-        when(saleRepository.findBySoldAtBetween(any(), any())).thenReturn(sales);
+        when(saleRepository.sumBySkuAndBranch(any(), any())).thenReturn(groupRows(sales));
 
         // When
         SalesAggregatesDTO result = salesAggregationService.calculateAggregates(Instant.EPOCH, Instant.now(), null);
@@ -129,5 +171,129 @@ class SalesAggregationServiceTest {
         // Then: topSku should be one of the tied ones
         assertThat(List.of("SKU_A", "SKU_B")).contains(result.getTopSku());
     }
-}
 
+    @Test
+    void shouldMergeTimeSlicesForLargeRanges() {
+        // Given: 90 days without branch filter, split in 7-day slices on a 4-thread pool
+        SalesAggregationService parallel = new SalesAggregationService(saleRepository, salesRollupService, new ForkJoinPool(4),
+                disabledCache(), transactionManager, false, 7, 31);
+        Instant from = Instant.parse("2025-01-01T00:00:00Z");
+        Instant to = Instant.parse("2025-03-31T23:59:59Z");
+        int slices = parallel.planSlices(from, to).size();
+        Instant now = Instant.now();
+        when(saleRepository.sumBySkuAndBranchUntil(any(), any())).thenReturn(groupRows(List.of(
+                createSale("s1", "SKU_A", 10, 1.0, "Miraflores", now))));
+        when(saleRepository.sumBySkuAndBranch(any(), any())).thenReturn(groupRows(List.of(
+                createSale("s2", "SKU_B", 4, 2.0, "Surco", now))));
+
+        // When
+        SalesAggregatesDTO result = parallel.calculateAggregates(from, to, null);
+
+        // Then: every inner slice plus the inclusive last slice is merged exactly once
+        assertThat(slices).isEqualTo(13);
+        assertThat(result.getUnitsBySku()).containsEntry("SKU_A", 10L * (slices - 1)).containsEntry("SKU_B", 4L);
+        assertThat(result.getTotalUnits()).isEqualTo(10L * (slices - 1) + 4);
+        assertThat(result.getTopSku()).isEqualTo("SKU_A");
+        assertThat(result.getTopBranch()).isEqualTo("Miraflores");
+    }
+
+    @Test
+    void shouldServeCachedAggregatesUntilCoveringSaleIsWritten() {
+        // Given
+        SalesAggregatesCache cache = enabledCache();
+        SalesAggregationService cached = new SalesAggregationService(saleRepository, salesRollupService, new ForkJoinPool(1),
+                cache, transactionManager, false, 7, 31);
+        Instant from = Instant.parse("2025-09-01T00:00:00Z");
+        Instant to = Instant.parse("2025-09-07T23:59:59Z");
+        when(saleRepository.sumBySkuAndBranchForBranch(any(), any(), any())).thenReturn(groupRows(List.of(
+                createSale("s1", "A", 3, 1.0, "Miraflores", from))));
+
+        // When: repeated request, then writes outside and inside the cached key
+        cached.calculateAggregates(from, to, "Miraflores");
+        cached.calculateAggregates(from, to, " Miraflores ");
+        cache.invalidate(Instant.parse("2025-09-03T10:00:00Z"), "Surco");
+        cache.invalidate(Instant.parse("2025-09-10T10:00:00Z"), "Miraflores");
+        cached.calculateAggregates(from, to, "Miraflores");
+        cache.invalidate(Instant.parse("2025-09-03T10:00:00Z"), "Miraflores");
+        SalesAggregatesDTO result = cached.calculateAggregates(from, to, "Miraflores");
+
+        // Then
+        verify(saleRepository, times(2)).sumBySkuAndBranchForBranch(any(), any(), any());
+        assertThat(cache.hitCount()).isEqualTo(2);
+        assertThat(cache.missCount()).isEqualTo(2);
+        assertThat(result.getTotalUnits()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldQueryTheTrimmedBranchItIsCachedUnder() {
+        // Given
+        SalesAggregatesCache cache = enabledCache();
+        SalesAggregationService cached = new SalesAggregationService(saleRepository, salesRollupService, new ForkJoinPool(1),
+                cache, transactionManager, false, 7, 31);
+        Instant from = Instant.parse("2025-09-01T00:00:00Z");
+        Instant to = Instant.parse("2025-09-07T23:59:59Z");
+        when(saleRepository.sumBySkuAndBranchForBranch(from, to, "Miraflores")).thenReturn(groupRows(List.of(
+                createSale("s1", "A", 3, 1.0, "Miraflores", from))));
+
+        // When the first request pads the branch
+        cached.calculateAggregates(from, to, " Miraflores ");
+        SalesAggregatesDTO result = cached.calculateAggregates(from, to, "Miraflores");
+
+        // Then the cached entry holds the Miraflores sales, not an empty result
+        verify(saleRepository).sumBySkuAndBranchForBranch(from, to, "Miraflores");
+        assertThat(cache.hitCount()).isEqualTo(1);
+        assertThat(result.getTotalUnits()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldNotLetACallerChangeWhatTheNextReaderGets() {
+        // Given
+        SalesAggregatesCache cache = enabledCache();
+        Instant from = Instant.parse("2025-09-01T00:00:00Z");
+        Instant to = Instant.parse("2025-09-07T23:59:59Z");
+        SalesAggregatesDTO computed = SalesAggregatesDTO.builder().totalUnits(3).totalRevenue(3.0).topSku("A")
+                .topBranch("Miraflores").unitsBySku(new LinkedHashMap<>(Map.of("A", 3L))).build();
+
+        // When the loader's result and a cache hit are both modified
+        SalesAggregatesDTO first = cache.get(from, to, "Miraflores", () -> computed);
+        first.setTotalUnits(99);
+        first.setTopSku("Z");
+        computed.setTotalRevenue(99.0);
+        computed.getUnitsBySku().put("Z", 99L);
+        SalesAggregatesDTO second = cache.get(from, to, "Miraflores", () -> computed);
+        second.setTopBranch("Surco");
+        SalesAggregatesDTO third = cache.get(from, to, "Miraflores", () -> computed);
+
+        // Then every reader gets what was computed
+        assertThat(cache.hitCount()).isEqualTo(2);
+        assertThat(third).isNotSameAs(second);
+        assertThat(third.getTotalUnits()).isEqualTo(3);
+        assertThat(third.getTotalRevenue()).isEqualTo(3.0);
+        assertThat(third.getTopSku()).isEqualTo("A");
+        assertThat(third.getTopBranch()).isEqualTo("Miraflores");
+        assertThat(third.getUnitsBySku()).containsExactly(Map.entry("A", 3L));
+        assertThatThrownBy(() -> third.getUnitsBySku().put("Z", 1L)).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void shouldKeepReplicaResultsOnlyForTheReplicaTtl() throws Exception {
+        // Given a cache in front of a replica
+        SalesAggregatesCache cache = new SalesAggregatesCache(new SimpleMeterRegistry(), true, 100, Duration.ofMinutes(5),
+                Duration.ofMillis(100), "jdbc:h2:mem:replica", false);
+        Instant from = Instant.parse("2025-09-01T00:00:00Z");
+        Instant to = Instant.parse("2025-09-07T23:59:59Z");
+        SalesAggregatesDTO computed = SalesAggregatesDTO.builder().totalUnits(3).build();
+
+        // When one entry is loaded from the replica and one inside an onPrimary scope
+        cache.get(from, to, "Miraflores", () -> computed);
+        ReadWriteRoutingDataSource.onPrimary(() -> cache.get(from, to, "Surco", () -> computed));
+        cache.get(from, to, "Miraflores", () -> computed);
+        Thread.sleep(150);
+        cache.get(from, to, "Miraflores", () -> computed);
+        cache.get(from, to, "Surco", () -> computed);
+
+        // Then only the replica result had to be computed again
+        assertThat(cache.missCount()).isEqualTo(3);
+        assertThat(cache.hitCount()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,106 @@
+package org.ide.hack1.service.sales;
+
+import org.ide.hack1.dto.summary.SalesAggregatesDTO;
+import org.ide.hack1.entity.Sale;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class SalesAggregatorTest {
+
+    private Sale createSale(String sku, int units, double price, String branch) {
+        Sale s = new Sale();
+        s.setSku(sku);
+        s.setUnits(units);
+        s.setPrice(price);
+        s.setBranch(branch);
+        s.setSoldAt(Instant.now());
+        return s;
+    }
+
+    private List<Sale> randomSales(int count, int skus, int branches) {
+        Random random = new Random(7);
+        List<Sale> sales = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            sales.add(createSale("SKU_" + random.nextInt(skus), 1 + random.nextInt(10),
+                    0.5 + random.nextInt(400) / 100.0, "B_" + random.nextInt(branches)));
+        }
+        return sales;
+    }
+
+    @Test
+    void shouldMatchGroupingByReference() {
+        // Given: more distinct codes than the initial table capacity
+        List<Sale> sales = randomSales(5000, 300, 40);
+
+        // When
+        SalesAggregator aggregator = new SalesAggregator();
+        sales.forEach(aggregator::accept);
+        SalesAggregatesDTO result = aggregator.result();
+
+        // Then
+        Map<String, Long> unitsBySku = sales.stream().collect(Collectors.groupingBy(Sale::getSku, Collectors.summingLong(Sale::getUnits)));
+        Map<String, Double> revenueByBranch = sales.stream().collect(Collectors.groupingBy(Sale::getBranch, Collectors.summingDouble(s -> s.getUnits() * s.getPrice())));
+        assertThat(result.getUnitsBySku()).isEqualTo(unitsBySku);
+        assertThat(result.getRevenueByBranch().keySet()).isEqualTo(revenueByBranch.keySet());
+        revenueByBranch.forEach((branch, revenue) -> assertThat(result.getRevenueByBranch().get(branch)).isCloseTo(revenue, within(1e-6)));
+        assertThat(result.getTotalUnits()).isEqualTo(sales.stream().mapToLong(Sale::getUnits).sum());
+        assertThat(result.getTopSku()).isEqualTo(unitsBySku.entrySet().stream().max(Map.Entry.comparingByValue()).get().getKey());
+    }
+
+    @Test
+    void shouldBreakTiesByName() {
+        // Given
+        List<Sale> sales = List.of(
+                createSale("SKU_B", 10, 1.0, "Surco"),
+                createSale("SKU_A", 10, 1.0, "Miraflores")
+        );
+
+        // When
+        SalesAggregatesDTO result = sales.stream().collect(SalesAggregator.collector());
+
+        // Then
+        assertThat(result.getTopSku()).isEqualTo("SKU_A");
+        assertThat(result.getTopBranch()).isEqualTo("Miraflores");
+    }
+
+    @Test
+    void shouldGiveSameResultWhenMerged() {
+        // Given
+        List<Sale> sales = randomSales(2000, 50, 10);
+        SalesAggregator sequential = new SalesAggregator();
+        sales.forEach(sequential::accept);
+
+        // When
+        SalesAggregator left = new SalesAggregator();
+        SalesAggregator right = new SalesAggregator();
+        sales.subList(0, 1000).forEach(left::accept);
+        sales.subList(1000, 2000).forEach(right::accept);
+        SalesAggregatesDTO merged = left.merge(right).result();
+
+        // Then
+        SalesAggregatesDTO expected = sequential.result();
+        assertThat(merged.getUnitsBySku()).isEqualTo(expected.getUnitsBySku());
+        assertThat(merged.getTotalUnits()).isEqualTo(expected.getTotalUnits());
+        assertThat(merged.getTopSku()).isEqualTo(expected.getTopSku());
+        assertThat(merged.getTopBranch()).isEqualTo(expected.getTopBranch());
+    }
+
+    @Test
+    void shouldReturnEmptyAggregates() {
+        SalesAggregatesDTO result = new SalesAggregator().result();
+
+        assertThat(result.getTotalUnits()).isZero();
+        assertThat(result.getTopSku()).isNull();
+        assertThat(result.getTopBranch()).isNull();
+        assertThat(result.getUnitsBySku()).isEmpty();
+    }
+}
@@ -0,0 +1,117 @@
+package org.ide.hack1.service.sales;
+
+import org.ide.hack1.dto.sales.SaleBatchItemResult;
+import org.ide.hack1.dto.sales.SaleBatchResponse;
+import org.ide.hack1.dto.sales.SaleRequest;
+import org.ide.hack1.dto.summary.SalesGroupRow;
+import org.ide.hack1.entity.Sale;
+import org.ide.hack1.repository.SaleRepository;
+import org.ide.hack1.repository.SalesDailyRollupRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest(properties = "sales.batch.chunk-size=2")
+class SalesBatchServiceTest {
+
+    private static final LocalDate DAY = LocalDate.parse("2024-06-03");
+
+    @Autowired
+    private SalesBatchService batchService;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private SalesDailyRollupRepository rollupRepository;
+
+    private final List<String> createdIds = new ArrayList<>();
+
+    @AfterEach
+    void cleanup() {
+        List<Sale> sales = saleRepository.findAllById(createdIds);
+        saleRepository.deleteAll(sales);
+        rollupRepository.deleteAll(rollupRepository.findBySaleDay(DAY));
+    }
+
+    @Test
+    void shouldInsertValidItemsInChunksAndReportEachItem() {
+        // Given five items: three valid, one invalid, one for another branch
+        List<SaleRequest> items = Arrays.asList(
+                request("OREO_CLASSIC", 2, "Miraflores"),
+                request("", 1, "Miraflores"),
+                request("OREO_CLASSIC", 3, "Miraflores"),
+                request("OREO_THINS", 1, "San Isidro"),
+                request("OREO_THINS", 4, "Miraflores"));
+
+        // When a BRANCH user of Miraflores sends them
+        SaleBatchResponse resp = batchService.createSales(items, null, "branch-user", "BRANCH", "Miraflores");
+        resp.getResults().stream().map(SaleBatchItemResult::getId).filter(id -> id != null).forEach(createdIds::add);
+
+        // Then
+        assertThat(resp.getReceived()).isEqualTo(5);
+        assertThat(resp.getCreated()).isEqualTo(3);
+        assertThat(resp.getRejected()).isEqualTo(2);
+        assertThat(resp.getResults()).extracting(SaleBatchItemResult::getStatus).containsExactly(
+                SaleBatchItemResult.Status.CREATED,
+                SaleBatchItemResult.Status.REJECTED,
+                SaleBatchItemResult.Status.CREATED,
+                SaleBatchItemResult.Status.REJECTED,
+                SaleBatchItemResult.Status.CREATED);
+        assertThat(resp.getResults().get(1).getError()).isEqualTo("sku must not be blank");
+        assertThat(resp.getResults().get(3).getError()).isEqualTo("branch mismatch");
+        assertThat(saleRepository.findAllById(createdIds)).hasSize(3);
+
+        // and the daily rollup holds one merged row per (sku, branch)
+        assertThat(rollupRepository.sumBySkuAndBranch(DAY, DAY))
+                .extracting(SalesGroupRow::getSku, SalesGroupRow::getUnits)
+                .containsExactlyInAnyOrder(
+                        tuple("OREO_CLASSIC", 5L),
+                        tuple("OREO_THINS", 4L));
+    }
+
+    @Test
+    void shouldFailOnlyTheBrokenChunkWithoutExposingTheDatabaseError() {
+        // Given chunks of two where the first holds a SKU longer than its column
+        List<SaleRequest> items = List.of(
+                request("OREO_CLASSIC", 2, "Miraflores"),
+                request("X".repeat(300), 1, "Miraflores"),
+                request("OREO_THINS", 4, "Miraflores"));
+
+        // When
+        SaleBatchResponse resp = batchService.createSales(items, null, "admin", "CENTRAL", null);
+        resp.getResults().stream().map(SaleBatchItemResult::getId).filter(id -> id != null).forEach(createdIds::add);
+
+        // Then the whole first chunk failed with a generic error and the rollup only has the second chunk
+        assertThat(resp.getResults()).extracting(SaleBatchItemResult::getStatus).containsExactly(
+                SaleBatchItemResult.Status.FAILED,
+                SaleBatchItemResult.Status.FAILED,
+                SaleBatchItemResult.Status.CREATED);
+        assertThat(resp.getResults().get(0).getError())
+                .isEqualTo("chunk could not be saved, none of its items were stored")
+                .doesNotContainIgnoringCase("sql");
+        assertThat(rollupRepository.sumBySkuAndBranch(DAY, DAY))
+                .extracting(SalesGroupRow::getSku, SalesGroupRow::getUnits)
+                .containsExactly(tuple("OREO_THINS", 4L));
+    }
+
+    private SaleRequest request(String sku, int units, String branch) {
+        return SaleRequest.builder()
+                .sku(sku)
+                .units(units)
+                .price(1.5)
+                .branch(branch)
+                .soldAt(Instant.parse("2024-06-03T12:00:00Z"))
+                .build();
+    }
+}
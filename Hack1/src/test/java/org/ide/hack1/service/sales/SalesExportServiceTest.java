@@ -0,0 +1,86 @@
+package org.ide.hack1.service.sales;
+
+import org.ide.hack1.entity.Sale;
+import org.ide.hack1.repository.SaleRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class SalesExportServiceTest {
+
+    private static final Instant FROM = Instant.parse("2025-03-01T00:00:00Z");
+    private static final Instant TO = Instant.parse("2025-03-31T23:59:59Z");
+
+    @Autowired
+    private SalesExportService exportService;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @BeforeEach
+    void seed() {
+        saleRepository.saveAll(List.of(
+                sale("exp-1", "OREO_CLASSIC", 2, "Miraflores", "2025-03-02T10:00:00Z"),
+                sale("exp-2", "OREO \"DOUBLE\", 12u", 1, "San Isidro", "2025-03-01T09:00:00Z"),
+                sale("exp-3", "OREO_THINS", 5, "Miraflores", "2025-04-02T10:00:00Z")));
+    }
+
+    @AfterEach
+    void cleanup() {
+        saleRepository.deleteAllById(List.of("exp-1", "exp-2", "exp-3"));
+    }
+
+    @Test
+    void shouldStreamCsvInSoldAtOrderWithQuotedFields() {
+        // Given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        exportService.export(FROM, TO, null, SalesExportService.Format.CSV, "CENTRAL", null, out);
+
+        // Then
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(0)).isEqualTo("id,sku,units,price,branch,soldAt,createdBy,createdAt");
+        assertThat(lines.get(1)).startsWith("exp-2,\"OREO \"\"DOUBLE\"\", 12u\",1,2.5,San Isidro,2025-03-01T09:00:00Z,");
+        assertThat(lines.get(2)).startsWith("exp-1,OREO_CLASSIC,2,2.5,Miraflores,2025-03-02T10:00:00Z,");
+    }
+
+    @Test
+    void shouldScopeNdjsonToTheBranchUsersBranch() {
+        // Given a BRANCH user asking for another branch
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        exportService.export(FROM, TO, "San Isidro", SalesExportService.Format.NDJSON, "BRANCH", "Miraflores", out);
+
+        // Then only their own branch is exported, one JSON object per line
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(lines).containsExactly("{\"id\":\"exp-1\",\"sku\":\"OREO_CLASSIC\",\"units\":2,\"price\":2.5,"
+                + "\"branch\":\"Miraflores\",\"soldAt\":\"2025-03-02T10:00:00Z\",\"createdBy\":\"test\","
+                + "\"createdAt\":\"2025-03-01T00:00:00Z\"}");
+    }
+
+    private Sale sale(String id, String sku, int units, String branch, String soldAt) {
+        return Sale.builder()
+                .id(id)
+                .sku(sku)
+                .units(units)
+                .price(2.5)
+                .branch(branch)
+                .soldAt(Instant.parse(soldAt))
+                .createdBy("test")
+                .createdAt(FROM)
+                .build();
+    }
+}
@@ -0,0 +1,80 @@
+package org.ide.hack1.service.sales;
+
+import org.ide.hack1.service.report.SchedulerLock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.YearMonth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class SalesPartitionMaintenanceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private SalesAggregatesCache aggregatesCache;
+
+    @Mock
+    private SchedulerLock schedulerLock;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SalesPartitionMaintenance maintenance;
+
+    @BeforeEach
+    void setUp() {
+        maintenance = new SalesPartitionMaintenance(jdbcTemplate, aggregatesCache, schedulerLock, transactionManager, 3, 12);
+    }
+
+    @Test
+    void shouldBoundEachPartitionByItsMonthAcrossTheYearEnd() {
+        // Given / When / Then
+        assertThat(SalesPartitionMaintenance.createPartitionSql(YearMonth.of(2025, 12))).isEqualTo(
+                "create table if not exists sales_2025_12 partition of sales "
+                        + "for values from ('2025-12-01 00:00:00+00') to ('2026-01-01 00:00:00+00')");
+        assertThat(SalesPartitionMaintenance.createPartitionSql(YearMonth.of(2024, 2)))
+                .contains("sales_2024_02 ")
+                .contains("from ('2024-02-01 00:00:00+00') to ('2024-03-01 00:00:00+00')");
+    }
+
+    @Test
+    void shouldReadTheMonthBackFromOnlyMonthlyPartitionNames() {
+        // Given / When / Then
+        assertThat(SalesPartitionMaintenance.monthOf("sales_2025_01")).contains(YearMonth.of(2025, 1));
+        assertThat(SalesPartitionMaintenance.monthOf(SalesPartitionMaintenance.partitionName(YearMonth.of(2025, 11))))
+                .contains(YearMonth.of(2025, 11));
+        assertThat(SalesPartitionMaintenance.monthOf("sales_default")).isEmpty();
+        assertThat(SalesPartitionMaintenance.monthOf("sales_2025_1")).isEmpty();
+    }
+
+    @Test
+    void shouldKeepCreatingLaterMonthsWhenOneFails() {
+        // Given rows for December already sit in sales_default
+        doThrow(new DataIntegrityViolationException("updated partition constraint for default partition would be violated"))
+                .when(jdbcTemplate).execute(contains("sales_2025_12 "));
+
+        // When
+        maintenance.createPartitions(YearMonth.of(2025, 11), YearMonth.of(2026, 2));
+
+        // Then every month was attempted, in order
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate, times(4)).execute(sql.capture());
+        assertThat(sql.getAllValues()).extracting(s -> s.split(" ")[5]).containsExactly(
+                "sales_2025_11", "sales_2025_12", "sales_2026_01", "sales_2026_02");
+    }
+}
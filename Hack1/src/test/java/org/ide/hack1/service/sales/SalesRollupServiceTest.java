@@ -0,0 +1,96 @@
+package org.ide.hack1.service.sales;
+
+import org.ide.hack1.dto.sales.SaleRequest;
+import org.ide.hack1.dto.sales.SaleResponse;
+import org.ide.hack1.repository.SaleRepository;
+import org.ide.hack1.repository.SalesDailyRollupRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+class SalesRollupServiceTest {
+
+    private static final LocalDate DAY = LocalDate.parse("2024-07-15");
+
+    @Autowired
+    private SalesService salesService;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private SalesDailyRollupRepository rollupRepository;
+
+    private final List<String> createdIds = new ArrayList<>();
+
+    @AfterEach
+    void cleanup() {
+        saleRepository.deleteAll(saleRepository.findAllById(createdIds));
+        rollupRepository.deleteAll(rollupRepository.findBySaleDay(DAY));
+    }
+
+    @Test
+    void shouldAddConcurrentFirstSalesOfAGroupWithoutLosingAny() throws Exception {
+        // Given eight sales of the same day, branch and SKU, none in the rollup yet
+        int writers = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        List<Future<SaleResponse>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < writers; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    SaleRequest req = SaleRequest.builder().sku("OREO_RACE").units(2).price(1.5).branch("RaceBranch")
+                            .soldAt(Instant.parse("2024-07-15T12:00:00Z")).build();
+                    return salesService.createSale(req, "tester", "CENTRAL", null);
+                }));
+            }
+
+            // When they are written at once
+            start.countDown();
+            for (Future<SaleResponse> result : results) {
+                createdIds.add(result.get().getId());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // Then every sale was saved and counted once
+        assertThat(createdIds).hasSize(writers);
+        assertThat(rollupRepository.findBySaleDay(DAY))
+                .extracting(r -> r.getBranch(), r -> r.getSku(), r -> r.getUnits(), r -> r.getRevenue())
+                .containsExactly(tuple("RaceBranch", "OREO_RACE", 16L, 24.0));
+    }
+
+    @Test
+    void shouldMoveTotalsWhenASaleIsDeleted() {
+        // Given
+        SaleRequest req = SaleRequest.builder().sku("OREO_RACE").units(3).price(2.0).branch("RaceBranch")
+                .soldAt(Instant.parse("2024-07-15T08:00:00Z")).build();
+        SaleResponse kept = salesService.createSale(req, "tester", "CENTRAL", null);
+        SaleResponse removed = salesService.createSale(req, "tester", "CENTRAL", null);
+        createdIds.add(kept.getId());
+
+        // When
+        salesService.deleteSale(removed.getId(), "CENTRAL");
+
+        // Then
+        assertThat(rollupRepository.findBySaleDay(DAY))
+                .extracting(r -> r.getUnits(), r -> r.getRevenue())
+                .containsExactly(tuple(3L, 6.0));
+    }
+}
@@ -0,0 +1,199 @@
+package org.ide.hack1.service.sales;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.ide.hack1.dto.sales.SaleCursorPage;
+import org.ide.hack1.dto.sales.SaleResponse;
+import org.ide.hack1.entity.Sale;
+import org.ide.hack1.exception.ForbiddenException;
+import org.ide.hack1.repository.SaleRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Lecturas de {@link SalesService} contra H2. Las ventas se insertan directo con el repositorio, en un mes
+ * que ningún otro test usa; las estadísticas de Hibernate muestran qué hizo la base.
+ */
+@SpringBootTest
+class SalesServiceTest {
+
+    private static final Instant FROM = Instant.parse("2025-10-01T00:00:00Z");
+    private static final Instant TO = Instant.parse("2025-10-31T23:59:59Z");
+
+    @Autowired
+    private SalesService salesService;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void seed() {
+        // svc-b and svc-a share soldAt: the id decides their order
+        saleRepository.saveAll(List.of(
+                sale("svc-d", "OREO_CLASSIC", 1, "Miraflores", "2025-10-07T10:00:00Z"),
+                sale("svc-b", "OREO_THINS", 2, "San Isidro", "2025-10-05T10:00:00Z"),
+                sale("svc-a", "OREO_CLASSIC", 3, "Miraflores", "2025-10-05T10:00:00Z"),
+                sale("svc-c", "OREO_GOLDEN", 4, "Miraflores", "2025-10-06T10:00:00Z"),
+                sale("svc-e", "OREO_THINS", 5, "San Isidro", "2025-10-02T10:00:00Z")));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @AfterEach
+    void cleanup() {
+        statistics.setStatisticsEnabled(false);
+        saleRepository.deleteAllById(List.of("svc-a", "svc-b", "svc-c", "svc-d", "svc-e"));
+    }
+
+    @Test
+    void unfilteredListingShouldPageInTheDatabase() {
+        // When the second page of two is requested without a branch
+        Page<SaleResponse> page = salesService.listSales(FROM, TO, null, PageRequest.of(1, 2), "CENTRAL", null);
+
+        // Then it is (soldAt, id) ordered, only those two rows left the database, and the total comes from count(*)
+        assertThat(page.getContent()).extracting(SaleResponse::getId).containsExactly("svc-b", "svc-c");
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(page.getTotalPages()).isEqualTo(3);
+        assertThat(rowsReadBy("select new")).isEqualTo(2);
+        assertThat(executionsOf("count(")).isEqualTo(1);
+    }
+
+    @Test
+    void sliceListingShouldSkipTheCountQuery() {
+        // When
+        Slice<SaleResponse> slice = salesService.listSalesSlice(FROM, TO, null, PageRequest.of(0, 2), "CENTRAL", null);
+
+        // Then
+        assertThat(slice.getContent()).extracting(SaleResponse::getId).containsExactly("svc-e", "svc-a");
+        assertThat(slice.hasNext()).isTrue();
+        assertThat(executionsOf("count(")).isZero();
+    }
+
+    @Test
+    void branchUsersShouldOnlyPageTheirOwnBranch() {
+        // When a BRANCH user asks for all branches
+        Page<SaleResponse> page = salesService.listSales(FROM, TO, null, PageRequest.of(0, 10), "BRANCH", "San Isidro");
+
+        // Then
+        assertThat(page.getContent()).extracting(SaleResponse::getId).containsExactly("svc-e", "svc-b");
+        assertThat(page.getTotalElements()).isEqualTo(2);
+    }
+
+    @Test
+    void cursorWalkShouldVisitEverySaleOnceBreakingSoldAtTiesById() {
+        // Given pages of two, so svc-a and svc-b (same soldAt) land on different pages
+        List<String> visited = new ArrayList<>();
+        List<SaleCursorPage> pages = new ArrayList<>();
+        String cursor = "";
+
+        // When the caller follows nextCursor until the last page
+        do {
+            SaleCursorPage page = salesService.listSalesAfter(FROM, TO, null, cursor, 2, "CENTRAL", null);
+            pages.add(page);
+            page.getContent().forEach(sale -> visited.add(sale.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        // Then
+        assertThat(visited).containsExactly("svc-e", "svc-a", "svc-b", "svc-c", "svc-d");
+        assertThat(pages).extracting(SaleCursorPage::isHasNext).containsExactly(true, true, false);
+        assertThat(pages).extracting(SaleCursorPage::getSize).containsExactly(2, 2, 1);
+        assertThat(SaleCursor.decode(pages.get(0).getNextCursor()))
+                .isEqualTo(new SaleCursor(Instant.parse("2025-10-05T10:00:00Z"), "svc-a"));
+    }
+
+    @Test
+    void cursorShouldNotAnnounceANextPageWhenTheLastOneIsExactlyFull() {
+        // When a BRANCH user's two sales fill a page of two
+        SaleCursorPage page = salesService.listSalesAfter(FROM, TO, "Miraflores", null, 2, "BRANCH", "San Isidro");
+
+        // Then the branch is forced and there is nothing after it
+        assertThat(page.getContent()).extracting(SaleResponse::getId).containsExactly("svc-e", "svc-b");
+        assertThat(page.isHasNext()).isFalse();
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void getSaleShouldProjectEveryColumnWithoutLoadingTheEntity() {
+        // When
+        SaleResponse sale = salesService.getSale("svc-c", "BRANCH", "Miraflores");
+
+        // Then
+        assertThat(sale).isEqualTo(new SaleResponse("svc-c", "OREO_GOLDEN", 4, 2.5, "Miraflores",
+                Instant.parse("2025-10-06T10:00:00Z"), "test", FROM));
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void getSaleShouldStillEnforceTheBranchOnTheProjection() {
+        // When / Then
+        assertThatThrownBy(() -> salesService.getSale("svc-c", "BRANCH", "San Isidro"))
+                .isInstanceOf(ForbiddenException.class);
+    }
+
+    @Test
+    void listingsShouldProjectRowsWithoutLoadingEntities() {
+        // When
+        Page<SaleResponse> page = salesService.listSales(FROM, TO, "San Isidro", PageRequest.of(0, 10), "CENTRAL", null);
+        SaleCursorPage keyset = salesService.listSalesAfter(FROM, TO, null, null, 10, "CENTRAL", null);
+
+        // Then
+        assertThat(page.getContent()).containsExactly(
+                new SaleResponse("svc-e", "OREO_THINS", 5, 2.5, "San Isidro", Instant.parse("2025-10-02T10:00:00Z"), "test", FROM),
+                new SaleResponse("svc-b", "OREO_THINS", 2, 2.5, "San Isidro", Instant.parse("2025-10-05T10:00:00Z"), "test", FROM));
+        assertThat(keyset.getContent()).hasSize(5).allSatisfy(sale -> {
+            assertThat(sale.getSku()).startsWith("OREO_");
+            assertThat(sale.getCreatedBy()).isEqualTo("test");
+            assertThat(sale.getCreatedAt()).isEqualTo(FROM);
+        });
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    private long rowsReadBy(String hqlFragment) {
+        return Arrays.stream(statistics.getQueries())
+                .filter(q -> q.contains(hqlFragment))
+                .mapToLong(q -> statistics.getQueryStatistics(q).getExecutionRowCount())
+                .sum();
+    }
+
+    private long executionsOf(String hqlFragment) {
+        return Arrays.stream(statistics.getQueries())
+                .filter(q -> q.contains(hqlFragment))
+                .mapToLong(q -> statistics.getQueryStatistics(q).getExecutionCount())
+                .sum();
+    }
+
+    private Sale sale(String id, String sku, int units, String branch, String soldAt) {
+        return Sale.builder()
+                .id(id)
+                .sku(sku)
+                .units(units)
+                .price(2.5)
+                .branch(branch)
+                .soldAt(Instant.parse(soldAt))
+                .createdBy("test")
+                .createdAt(FROM)
+                .build();
+    }
+}
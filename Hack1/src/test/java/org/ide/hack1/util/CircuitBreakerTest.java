@@ -0,0 +1,64 @@
+package org.ide.hack1.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void shouldAllowASingleProbeAfterTheOpenPeriod() {
+        // Given an open circuit
+        CircuitBreaker breaker = new CircuitBreaker(2, Duration.ofSeconds(10), now::get);
+        breaker.tryAcquire();
+        breaker.onFailure();
+        breaker.tryAcquire();
+        breaker.onFailure();
+        assertThat(breaker.tryAcquire()).isFalse();
+
+        // When the open period elapses
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        // Then exactly one caller gets through until the probe reports back
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void shouldReopenWhenTheProbeFails() {
+        // Given a circuit in HALF_OPEN with its probe taken
+        CircuitBreaker breaker = new CircuitBreaker(1, Duration.ofSeconds(10), now::get);
+        breaker.tryAcquire();
+        breaker.onFailure();
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        breaker.tryAcquire();
+
+        // When
+        breaker.onFailure();
+
+        // Then it waits a full open period again
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        now.addAndGet(Duration.ofSeconds(5).toNanos());
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void shouldResetTheFailureCountOnSuccess() {
+        // Given
+        CircuitBreaker breaker = new CircuitBreaker(2, Duration.ofSeconds(10), now::get);
+
+        // When failures are not consecutive
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+
+        // Then
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+}
@@ -0,0 +1,82 @@
+package org.ide.hack1.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class IdGeneratorTest {
+
+    @Test
+    void shouldKeepPrefixAndSortInCreationOrder() {
+        // Given / When
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            ids.add(IdGenerator.newId("s_"));
+        }
+
+        // Then
+        assertThat(ids).allMatch(id -> id.startsWith("s_") && id.length() == 15);
+        assertThat(ids).isSorted().doesNotHaveDuplicates();
+        assertThat(IdGenerator.timestampOf(ids.get(0))).isCloseTo(Instant.now(), within(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    void shouldStayUniqueAcrossThreads() throws Exception {
+        // Given
+        int threads = 8;
+        int perThread = 25_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        ConcurrentLinkedQueue<Long> all = new ConcurrentLinkedQueue<>();
+
+        // When
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                long previous = Long.MIN_VALUE;
+                for (int i = 0; i < perThread; i++) {
+                    long id = IdGenerator.nextLong();
+                    // each thread sees strictly increasing values
+                    if (id <= previous) throw new AssertionError("not monotonic");
+                    previous = id;
+                    all.add(id);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) {
+            f.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        // Then
+        Set<Long> unique = new HashSet<>(all);
+        assertThat(unique).hasSize(threads * perThread);
+    }
+
+    @Test
+    void shouldRoundTripCrockfordEncoding() {
+        // Given
+        long value = IdGenerator.nextLong();
+
+        // When / Then
+        assertThat(IdGenerator.decode(IdGenerator.encode(value))).isEqualTo(value);
+        assertThat(IdGenerator.encode(0L)).isEqualTo("0000000000000");
+    }
+}
@@ -0,0 +1,67 @@
+package org.ide.hack1.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    @Test
+    void shouldShareOneExecutionAndItsFailureWithConcurrentCallers() throws Exception {
+        // Given a leader blocked inside the call
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> flight.execute("k", () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(release);
+            throw new IllegalStateException("boom");
+        }));
+        started.await(5, TimeUnit.SECONDS);
+
+        // When a second caller arrives for the same key
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> flight.execute("k", () -> {
+            calls.incrementAndGet();
+            return "second";
+        }));
+        // give it time to find the leader's entry before the leader fails
+        Thread.sleep(100);
+        release.countDown();
+
+        // Then both get the leader's exception and the call ran once
+        assertThatThrownBy(leader::join).hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(follower::join).hasCauseInstanceOf(IllegalStateException.class).hasMessageContaining("boom");
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(flight.inFlight()).isZero();
+    }
+
+    @Test
+    void shouldRunAgainOnceThePreviousCallFinished() {
+        // Given
+        SingleFlight<String, Integer> flight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+
+        // When
+        flight.execute("k", calls::incrementAndGet);
+        int second = flight.execute("k", calls::incrementAndGet);
+
+        // Then nothing is cached between calls
+        assertThat(second).isEqualTo(2);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.ide.hack1.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void shouldQueueReservationsBehindEachOther() {
+        // Given a bucket of 2 per second with its burst used up
+        TokenBucket bucket = new TokenBucket(2, 2, now::get);
+        assertThat(bucket.reserve(0)).isZero();
+        assertThat(bucket.reserve(0)).isZero();
+
+        // When two more callers reserve
+        long first = bucket.reserve(Duration.ofSeconds(5).toNanos());
+        long second = bucket.reserve(Duration.ofSeconds(5).toNanos());
+
+        // Then each waits one more refill than the previous one
+        assertThat(first).isEqualTo(Duration.ofMillis(500).toNanos());
+        assertThat(second).isEqualTo(Duration.ofMillis(1000).toNanos());
+    }
+
+    @Test
+    void shouldNotConsumeWhenTheWaitIsTooLong() {
+        // Given
+        TokenBucket bucket = new TokenBucket(1, 1, now::get);
+        bucket.reserve(0);
+
+        // When
+        long refused = bucket.reserve(Duration.ofMillis(100).toNanos());
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+
+        // Then the refused caller took nothing, so the refilled token is available
+        assertThat(refused).isEqualTo(-1);
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isFalse();
+    }
+}